@@ -13,6 +13,7 @@ public class AndroidLauncher extends AndroidApplication {
         super.onCreate(savedInstanceState);
         AndroidApplicationConfiguration configuration = new AndroidApplicationConfiguration();
         configuration.useImmersiveMode = true; // Recommended, but not required.
+        configuration.useGL30 = true; // Instanced belt items; falls back to GLES2 where unsupported.
         initialize(new IronfallGame(), configuration);
     }
 }
\ No newline at end of file
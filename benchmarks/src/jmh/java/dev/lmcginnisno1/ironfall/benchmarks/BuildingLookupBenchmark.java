@@ -0,0 +1,93 @@
+package dev.lmcginnisno1.ironfall.benchmarks;
+
+import dev.lmcginnisno1.ironfall.buildings.Building;
+import dev.lmcginnisno1.ironfall.buildings.BuildingManager;
+import dev.lmcginnisno1.ironfall.buildings.Conveyor;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * BuildingManager.getAt against the HashMap<Long, Building> it replaced, and
+ * canPlace for a miner-sized footprint. The 20000x20000 map is past
+ * OccupancyGrid.DENSE_LIMIT, so it exercises the sparse chunked layout.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class BuildingLookupBenchmark {
+
+    private static final int LOOKUPS = 4096;
+
+    @Param({"480x270", "20000x20000"})
+    public String mapSize;
+
+    private BuildingManager manager;
+    private HashMap<Long, Building> baseline;
+    private int[] xs;
+    private int[] ys;
+
+    @Setup
+    public void setup() {
+        String[] dims = mapSize.split("x");
+        int width = Integer.parseInt(dims[0]);
+        int height = Integer.parseInt(dims[1]);
+
+        manager = new BuildingManager(width, height);
+        baseline = new HashMap<>();
+
+        // A 200x100 block of belts near the origin: roughly a quarter of
+        // the default map, with lookups split between hits and misses.
+        for (int y = 0; y < 100; y++) {
+            for (int x = 0; x < 200; x++) {
+                Conveyor c = new Conveyor(x, y, Conveyor.Direction.RIGHT);
+                manager.place(c);
+                baseline.put(key(x, y), c);
+            }
+        }
+
+        Random random = new Random(42);
+        xs = new int[LOOKUPS];
+        ys = new int[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            xs[i] = random.nextInt(400);
+            ys[i] = random.nextInt(200);
+        }
+    }
+
+    private static long key(int x, int y) {
+        return (((long) x) << 32) | (y & 0xffffffffL);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOOKUPS)
+    public int occupancyGrid() {
+        int hits = 0;
+        for (int i = 0; i < LOOKUPS; i++) {
+            if (manager.getAt(xs[i], ys[i]) != null) hits++;
+        }
+        return hits;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOOKUPS)
+    public int canPlace2x2() {
+        int free = 0;
+        for (int i = 0; i < LOOKUPS; i++) {
+            if (manager.canPlace(xs[i], ys[i], 2, 2)) free++;
+        }
+        return free;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LOOKUPS)
+    public int hashMapBaseline() {
+        int hits = 0;
+        for (int i = 0; i < LOOKUPS; i++) {
+            if (baseline.get(key(xs[i], ys[i])) != null) hits++;
+        }
+        return hits;
+    }
+}
@@ -0,0 +1,53 @@
+package dev.lmcginnisno1.ironfall.benchmarks;
+
+import com.badlogic.gdx.math.Vector2;
+import dev.lmcginnisno1.ironfall.buildings.BuildingManager;
+import dev.lmcginnisno1.ironfall.buildings.Conveyor;
+import dev.lmcginnisno1.ironfall.placement.ConveyorPathHelper;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The belt drag preview: PlacementController recomputes the path and every
+ * tile's direction each frame while dragging. The map holds the Core plus a
+ * few thousand belts, since the last tile's direction scans the buildings.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ConveyorPathBenchmark {
+
+    private ConveyorPathHelper helper;
+    private ArrayList<Vector2> path;
+
+    @Setup
+    public void setup() {
+        BuildingManager manager = new BuildingManager(480, 270);
+        manager.placeCore(200, 100);
+
+        for (int y = 0; y < 40; y++) {
+            for (int x = 0; x < 100; x++) {
+                manager.place(new Conveyor(x, y, Conveyor.Direction.RIGHT));
+            }
+        }
+
+        helper = new ConveyorPathHelper(manager);
+        // Ends against the Core's left side, so the last tile turns into it
+        path = helper.computePath(120, 150, 199, 101, true);
+    }
+
+    @Benchmark
+    public ArrayList<Vector2> computePath() {
+        return helper.computePath(120, 150, 199, 101, true);
+    }
+
+    @Benchmark
+    public void directions(Blackhole bh) {
+        for (int i = 0; i < path.size(); i++) {
+            bh.consume(helper.getDirectionForIndex(path, i));
+        }
+    }
+}
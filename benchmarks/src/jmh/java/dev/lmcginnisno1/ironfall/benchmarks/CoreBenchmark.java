@@ -0,0 +1,44 @@
+package dev.lmcginnisno1.ironfall.benchmarks;
+
+import dev.lmcginnisno1.ironfall.buildings.BuildingManager;
+import dev.lmcginnisno1.ironfall.buildings.Core;
+import dev.lmcginnisno1.ironfall.items.ItemType;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Core.acceptItem, which runs once for every item delivered. Each
+ * invocation delivers a batch of mixed items and then spends them again, so
+ * the Core never reaches its storage cap.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class CoreBenchmark {
+
+    private static final int ITEMS = 96;
+
+    private static final ItemType[] TYPES = ItemType.values();
+
+    private Core core;
+
+    @Setup
+    public void setup() {
+        BuildingManager manager = new BuildingManager(64, 64);
+        manager.placeCore(30, 30);
+        core = manager.getCore();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ITEMS)
+    public int acceptItem() {
+        int accepted = 0;
+        for (int i = 0; i < ITEMS; i++) {
+            if (core.acceptItem(TYPES[i % TYPES.length])) accepted++;
+        }
+
+        for (ItemType type : TYPES) core.trySpendResource(type, ITEMS / TYPES.length);
+        return accepted;
+    }
+}
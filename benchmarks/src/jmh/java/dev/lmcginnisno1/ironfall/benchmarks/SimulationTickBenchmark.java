@@ -0,0 +1,64 @@
+package dev.lmcginnisno1.ironfall.benchmarks;
+
+import dev.lmcginnisno1.ironfall.buildings.BuildingManager;
+import dev.lmcginnisno1.ironfall.game.FactoryScenario;
+import dev.lmcginnisno1.ironfall.game.SimulationClock;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One fixed-rate simulation tick (BuildingManager.update) over a
+ * FactoryScenario of 64 belt rows of 64 tiles, each with a miner on every
+ * other tile feeding it: the headless runner's saturated layout. That's far
+ * more than a belt can carry, so once warmed up the belts run full and most
+ * miners sit on a full buffer:
+ *
+ *   saturated: the Cores are emptied every simulated second, so belts keep
+ *              moving at capacity and blocked miners retry as space opens
+ *   backedUp:  the Cores are left at their storage cap, so every belt and
+ *              miner has stalled and should be asleep
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SimulationTickBenchmark {
+
+    private static final int ROWS = 64;
+    private static final int ROW_LENGTH = 64;
+
+    @Param({"saturated", "backedUp"})
+    public String layout;
+
+    @Param({"1"})
+    public int threads;
+
+    private FactoryScenario factory;
+    private BuildingManager manager;
+    private int tick;
+
+    @Setup
+    public void setup() {
+        factory = new FactoryScenario(ROWS, ROW_LENGTH, ROW_LENGTH / 2);
+        manager = factory.buildings;
+        manager.setSimulationThreads(threads);
+
+        // Long enough for backedUp to fill every Core, belt and miner
+        for (int i = 0; i < 60 * SimulationClock.TICKS_PER_SECOND; i++) tick();
+    }
+
+    @TearDown
+    public void tearDown() {
+        manager.dispose();
+    }
+
+    @Benchmark
+    public BuildingManager tick() {
+        manager.update(SimulationClock.TICK_SECONDS);
+
+        if (layout.equals("saturated") && ++tick % SimulationClock.TICKS_PER_SECOND == 0) {
+            factory.drainCores();
+        }
+        return manager;
+    }
+}
@@ -0,0 +1,74 @@
+package dev.lmcginnisno1.ironfall.benchmarks;
+
+import com.badlogic.gdx.math.Vector2;
+import dev.lmcginnisno1.ironfall.buildings.BuildingManager;
+import dev.lmcginnisno1.ironfall.tiles.TileEngine;
+import dev.lmcginnisno1.ironfall.tiles.TileType;
+import dev.lmcginnisno1.ironfall.worldgen.WorldGenerator;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * WorldGenerator.findCoreLocation on a generated default-size map (fixed
+ * seed, so every run scores the same map), plus TileEngine.getTile and
+ * TileType.fromId, which the renderers and placement checks call per tile.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+public class WorldGenBenchmark {
+
+    private static final int LOOKUPS = 4096;
+
+    private TileEngine engine;
+    private int[] ids;
+    private int[] xs;
+    private int[] ys;
+
+    @Setup
+    public void setup() {
+        engine = new TileEngine(480, 270);
+        WorldGenerator.generate(engine, new BuildingManager(480, 270), 42L);
+
+        // Sample real tiles so the id mix matches the map
+        Random random = new Random(42);
+        ids = new int[LOOKUPS];
+        xs = new int[LOOKUPS];
+        ys = new int[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            xs[i] = random.nextInt(480);
+            ys[i] = random.nextInt(270);
+            ids[i] = engine.getTile(xs[i], ys[i]);
+        }
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Vector2 findCoreLocation() {
+        return WorldGenerator.findCoreLocation(engine);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    @OperationsPerInvocation(LOOKUPS)
+    public int getTile() {
+        int sum = 0;
+        for (int i = 0; i < LOOKUPS; i++) {
+            sum += engine.getTile(xs[i], ys[i]);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    @OperationsPerInvocation(LOOKUPS)
+    public int tileTypeFromId() {
+        int sum = 0;
+        for (int i = 0; i < LOOKUPS; i++) {
+            TileType t = TileType.fromId(ids[i]);
+            sum += t.row;
+        }
+        return sum;
+    }
+}
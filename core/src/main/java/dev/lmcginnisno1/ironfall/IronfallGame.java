@@ -2,22 +2,37 @@ package dev.lmcginnisno1.ironfall;
 
 import com.badlogic.gdx.ApplicationAdapter;
 import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.assets.AssetManager;
 import com.badlogic.gdx.graphics.OrthographicCamera;
 import com.badlogic.gdx.graphics.g2d.BitmapFont;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
 import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.math.Vector3;
 import com.badlogic.gdx.utils.ScreenUtils;
 
 import dev.lmcginnisno1.ironfall.buildings.*;
+import dev.lmcginnisno1.ironfall.game.Command;
+import dev.lmcginnisno1.ironfall.game.CommandJournal;
 import dev.lmcginnisno1.ironfall.game.GameMode;
+import dev.lmcginnisno1.ironfall.game.Simulation;
+import dev.lmcginnisno1.ironfall.game.TimeWarp;
 import dev.lmcginnisno1.ironfall.input.*;
+import dev.lmcginnisno1.ironfall.items.ItemType;
 import dev.lmcginnisno1.ironfall.render.*;
+import dev.lmcginnisno1.ironfall.save.Autosave;
+import dev.lmcginnisno1.ironfall.save.SaveFile;
+import dev.lmcginnisno1.ironfall.save.SaveGame;
 import dev.lmcginnisno1.ironfall.selection.*;
 import dev.lmcginnisno1.ironfall.placement.*;
 import dev.lmcginnisno1.ironfall.tiles.Assets;
 import dev.lmcginnisno1.ironfall.tiles.TileEngine;
 import dev.lmcginnisno1.ironfall.tiles.TileType;
 import dev.lmcginnisno1.ironfall.worldgen.WorldGenerator;
+import dev.lmcginnisno1.ironfall.worldgen.WorldStreamer;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
 
 import static dev.lmcginnisno1.ironfall.render.TextUtil.drawOutlined;
 
@@ -27,11 +42,16 @@ public class IronfallGame extends ApplicationAdapter {
     private SpriteBatch batch;
     private BitmapFont font;
 
+    // Loads the atlas over the first frames; the world is set up once it's done
+    private AssetManager assets;
+    private boolean started = false;
+
     // World
     public TileEngine engine;
     public BuildingManager buildingManager;
 
     // Cameras
+    public OrthographicCamera camera;
     public OrthographicCamera hudCamera;
     private CameraController cameraController;
 
@@ -46,8 +66,20 @@ public class IronfallGame extends ApplicationAdapter {
     // Game state
     public GameMode mode = GameMode.NORMAL;
 
-    private final int width = 480;
-    private final int height = 270;
+    // Wallet, tick count and the factory; player actions go through sim.execute()
+    public Simulation sim;
+    public TimeWarp timeWarp;
+
+    // Taken from the save when there is one, so not final
+    private int width;
+    private int height;
+
+    // Streaming worlds are this many tiles per side, generated as explored
+    public static final int STREAMING_WORLD_SIZE = 1 << 16;
+    private WorldStreamer worldStreamer;
+
+    // The map is rebuilt exactly from this, so it's all a bug report needs
+    public long worldSeed = new Random().nextLong();
 
     // Screen-space info
     public int tileX;
@@ -60,15 +92,41 @@ public class IronfallGame extends ApplicationAdapter {
 
     // Enough for one Basic Miner ($50) plus a short belt run to the Core,
     // so a fresh save isn't a softlock before you've sold anything.
-    public int credits = 100;
+    private static final int STARTING_CREDITS = 100;
+
+    // Worker threads for the chunked simulation (1 = all on the render thread)
+    private final int simulationThreads;
+
+    private final boolean streamingWorld;
+
+    // Loaded on start if present; autosaved, and written on pause and exit
+    private static final String SAVE_FILE = "ironfall.sav";
+    private Autosave autosave;
+
+    // Every command this session, for replaying it (see Replay); restarted each launch
+    private static final String JOURNAL_FILE = "ironfall.journal";
+    private CommandJournal journal;
+
+    // Shorter absences aren't worth catching up (a quick restart, a clock
+    // that's slightly off)
+    private static final double MIN_CATCH_UP_SECONDS = 10;
+
+    public IronfallGame() {
+        this(1, false);
+    }
+
+    public IronfallGame(int simulationThreads, boolean streamingWorld) {
+        this.simulationThreads = simulationThreads;
+        this.width = streamingWorld ? STREAMING_WORLD_SIZE : WorldGenerator.START_WIDTH;
+        this.height = streamingWorld ? STREAMING_WORLD_SIZE : WorldGenerator.START_HEIGHT;
+        this.streamingWorld = streamingWorld;
+    }
 
     @Override
     public void create() {
         batch = new SpriteBatch();
-        engine = new TileEngine(width, height);
-
-        Assets.load();
 
+        // The built-in font needs nothing loaded, so it can show progress
         font = new BitmapFont();
         font.getData().setScale(1f);
 
@@ -79,7 +137,34 @@ public class IronfallGame extends ApplicationAdapter {
         hudCamera.setToOrtho(false, screenWidth, screenHeight);
         hudCamera.update();
 
-        buildingManager = new BuildingManager(width, height);
+        assets = new AssetManager();
+        Assets.queue(assets);
+    }
+
+    // The rest of create(), once the textures are in
+    private void start() {
+        Assets.load(assets);
+
+        SaveGame save = loadGame();
+        if (save != null) {
+            engine = save.engine;
+            buildingManager = save.buildings;
+            width = engine.getWidth();
+            height = engine.getHeight();
+            worldSeed = save.seed;
+            sim = new Simulation(save);
+        } else {
+            engine = streamingWorld
+                ? new TileEngine(width, height, WorldGenerator.chunkGenerator(worldSeed, width, height))
+                : new TileEngine(width, height);
+            buildingManager = new BuildingManager(width, height);
+            sim = new Simulation(engine, buildingManager, worldSeed, STARTING_CREDITS, 0);
+        }
+        buildingManager.setSimulationThreads(simulationThreads);
+        timeWarp = new TimeWarp(sim);
+
+        camera = new OrthographicCamera();
+        camera.setToOrtho(false);   // no fixed viewport
 
         // Subsystems
         selectionManager = new SelectionManager(this, buildingManager);
@@ -88,7 +173,7 @@ public class IronfallGame extends ApplicationAdapter {
         inputController = new InputController(this, selectionManager, overlayRenderer);
         selectionRenderer = new SelectionRenderer(selectionManager);
         cameraController = new CameraController(
-            engine.getCamera(),
+            camera,
             () -> mode == GameMode.NORMAL,
             width * TileEngine.TILE_SIZE,
             height * TileEngine.TILE_SIZE
@@ -96,17 +181,21 @@ public class IronfallGame extends ApplicationAdapter {
         placementController = new PlacementController(this, buildingManager);
 
         // Generate the world and pick the best location for the core
-        WorldGenerator.generate(engine, buildingManager);
+        if (save == null) WorldGenerator.generate(engine, buildingManager, worldSeed);
+        if (engine.isStreaming()) worldStreamer = new WorldStreamer(engine, buildingManager);
 
         // start camera centered on wherever the core is placed
         Core core = buildingManager.getCore();
-        OrthographicCamera cam = engine.getCamera();
 
         float cx = (core.x + core.width  / 2f) * TileEngine.TILE_SIZE;
         float cy = (core.y + core.height / 2f) * TileEngine.TILE_SIZE;
 
-        cam.position.set(cx, cy, 0);
-        cam.update();
+        camera.position.set(cx, cy, 0);
+        camera.update();
+
+        autosave = new Autosave(Gdx.files.local(SAVE_FILE).file(), sim::toSaveGame);
+        startJournal(save != null);
+        if (save != null) catchUp(save.savedAt);
 
         // After worldgen, game starts in normal mode
         mode = GameMode.NORMAL;
@@ -116,24 +205,43 @@ public class IronfallGame extends ApplicationAdapter {
     public void render() {
         ScreenUtils.clear(0.15f, 0.15f, 0.2f, 1f);
 
+        if (!started) {
+            // update() loads for a slice of the frame and returns true once done
+            if (!assets.update(16)) {
+                renderLoading();
+                return;
+            }
+            start();
+            started = true;
+        }
+
         float delta = Gdx.graphics.getDeltaTime();
 
         cameraController.update(delta);
 
-        OrthographicCamera cam = engine.getCamera();
-        cam.viewportWidth = Gdx.graphics.getWidth();
-        cam.viewportHeight = Gdx.graphics.getHeight();
-        cam.update();
+        camera.viewportWidth = Gdx.graphics.getWidth();
+        camera.viewportHeight = Gdx.graphics.getHeight();
+        camera.update();
 
-        engine.update();
         inputController.update();
         selectionManager.update();
-        buildingManager.update(delta);
         placementController.update();
 
+        // Fixed-rate simulation: however long the frame was, buildings always
+        // step by exactly one tick at a time, as many as the warp calls for.
+        timeWarp.update(delta);
+        autosave.update(delta);
+
         screenToTile(Gdx.input.getX(), Gdx.input.getY());
 
-        batch.setProjectionMatrix(engine.getCamera().combined);
+        worldRenderer.updateView();
+        if (worldStreamer != null) {
+            ViewBounds view = worldRenderer.getView();
+            worldStreamer.update(view.minX, view.minY, view.maxX, view.maxY, delta);
+        }
+        worldRenderer.renderTerrain();
+
+        batch.setProjectionMatrix(camera.combined);
         batch.begin();
         worldRenderer.render(batch);
         selectionRenderer.render(batch);
@@ -145,24 +253,107 @@ public class IronfallGame extends ApplicationAdapter {
 
         batch.setProjectionMatrix(hudCamera.combined);
         batch.begin();
+        worldRenderer.renderMinimap(batch);
         overlayRenderer.render(batch);
         batch.end();
     }
 
+    private void renderLoading() {
+        batch.setProjectionMatrix(hudCamera.combined);
+        batch.begin();
+        drawOutlined(font, batch, String.format("Loading... %.0f%%", assets.getProgress() * 100),
+            screenWidth / 2f - 40, screenHeight / 2f);
+        batch.end();
+    }
+
+    @Override
+    public void pause() {
+        if (started) autosave.saveNow();
+    }
+
     @Override
     public void dispose() {
+        if (started) {
+            autosave.saveNow();
+            autosave.dispose();
+            if (journal != null) journal.close(sim);
+            worldRenderer.dispose();
+            buildingManager.dispose();
+            engine.dispose();
+        }
         batch.dispose();
-        engine.dispose();
         font.dispose();
-        Assets.dispose();
+        assets.dispose();
+    }
+
+    private SaveGame loadGame() {
+        File file = Gdx.files.local(SAVE_FILE).file();
+        if (!file.exists()) return null;
+
+        try {
+            long start = System.nanoTime();
+            SaveGame save = SaveFile.read(file);
+            Gdx.app.log("Save", "Loaded " + file + " in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+            return save;
+        } catch (IOException | RuntimeException e) {
+            // A bad save shouldn't stop the game starting; a new world it is
+            Gdx.app.error("Save", "Couldn't load " + file + ", starting a new world", e);
+            return null;
+        }
+    }
+
+    // Credits the time since the save was written, analytically rather than
+    // by ticking through it. After the journal has started, so it's recorded.
+    private void catchUp(long savedAt) {
+        if (savedAt <= 0) return;
+
+        double away = (System.currentTimeMillis() - savedAt) / 1000.0;
+        if (away < MIN_CATCH_UP_SECONDS) return;
+
+        long start = System.nanoTime();
+        Command.CatchUp catchUp = new Command.CatchUp(away);
+        sim.execute(catchUp);
+
+        int[] delivered = catchUp.getDelivered();
+        StringBuilder items = new StringBuilder();
+        for (ItemType type : ItemType.values()) {
+            items.append(", ").append(delivered[type.ordinal()]).append(' ').append(type);
+        }
+        Gdx.app.log("Save", String.format("Caught up %.0f s away in %.2f ms%s",
+            away, (System.nanoTime() - start) / 1e6, items));
+    }
+
+    // The journal starts from the state the session starts in. A loaded save
+    // is copied byte for byte rather than saved again, so the replay loads
+    // exactly what this session did.
+    private void startJournal(boolean loaded) {
+        File file = Gdx.files.local(JOURNAL_FILE).file();
+        File start = CommandJournal.startFile(file);
+        try {
+            if (loaded) {
+                Gdx.files.local(SAVE_FILE).copyTo(Gdx.files.absolute(start.getAbsolutePath()));
+            } else {
+                SaveFile.write(start, sim.toSaveGame());
+            }
+            journal = new CommandJournal(file);
+            sim.setJournal(journal);
+        } catch (IOException | RuntimeException e) {
+            Gdx.app.error("Journal", "Couldn't start " + file + ", this session won't be recorded", e);
+        }
     }
 
     public void screenToTile(int mx, int my) {
-        Vector2 tilePos = engine.screenToWorld(mx, my);
+        Vector2 tilePos = screenToWorld(mx, my);
         tileX = (int) tilePos.x;
         tileY = (int) tilePos.y;
     }
 
+    // Screen pixel -> tile coordinates under the world camera
+    public Vector2 screenToWorld(int screenX, int screenY) {
+        Vector3 world = camera.unproject(new Vector3(screenX, screenY, 0));
+        return new Vector2((int)(world.x / TileEngine.TILE_SIZE), (int)(world.y / TileEngine.TILE_SIZE));
+    }
+
     @Override
     public void resize(int width, int height) {
         screenWidth = width;
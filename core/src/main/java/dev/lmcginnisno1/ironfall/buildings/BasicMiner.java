@@ -1,28 +1,41 @@
 package dev.lmcginnisno1.ironfall.buildings;
 
-import dev.lmcginnisno1.ironfall.items.Item;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import dev.lmcginnisno1.ironfall.items.ItemType;
 import dev.lmcginnisno1.ironfall.tiles.Assets;
 import dev.lmcginnisno1.ironfall.tiles.TileEngine;
+import dev.lmcginnisno1.ironfall.tiles.TileType;
 
 public class BasicMiner extends Building {
 
     private float timer = 0f;
 
-    private final int oreId;        // 11 = coal, 12 = iron, 13 = copper
+    // For a 2×2 building, each side has two adjacent tiles
+    private static final int[][] OUTPUT_OFFSETS = {
+        // left side
+        { -1, 0 }, { -1, 1 },
+        // right side
+        {  2, 0 }, {  2, 1 },
+        // bottom side
+        { 0, -1 }, { 1, -1 },
+        // top side
+        { 0,  2 }, { 1,  2 }
+    };
+
+    final ItemType ore;     // from tile id 11 = coal, 12 = iron, 13 = copper
 
     // 0 or 1 item waiting to be output
-    private Item buffer = null;
+    private ItemType buffer = null;
 
     // 0.25 ore/sec per ore tile
-    private final float rate;
+    final float rate;
 
     private final TileEngine engine;
 
     public static final int COST = 50;
 
     public BasicMiner(int x, int y, TileEngine engine) {
-        super(x, y, 2, 2, Assets.basicMiner, COST);
+        super(x, y, 2, 2, COST);
         this.engine = engine;
 
         int foundOreId = -1;
@@ -39,7 +52,7 @@ public class BasicMiner extends Building {
             }
         }
 
-        this.oreId = foundOreId;
+        this.ore = ItemType.oreTypeFromId(foundOreId);
         // number of ore tiles under it (1–4)
         int oreTiles = Math.min(count, 4);
 
@@ -49,35 +62,41 @@ public class BasicMiner extends Building {
 
     @Override
     public void update(float delta) {
-        // If buffer is full, try to output before producing more
+        // Not on ore: never produces anything
+        if (ore == null) {
+            sleep();
+            return;
+        }
+
+        // If buffer is full, try to output before producing more. If nothing
+        // will take it, park on every output until one frees up.
         if (buffer != null) {
+            // On a chunk border an output may belong to the next chunk over;
+            // then the whole update waits for the serial phase
+            if (!canTouchOutputs()) {
+                chunk.defer(this);
+                return;
+            }
+
             tryOutput();
-            if (buffer != null) return;
+            if (buffer != null) {
+                waitForOutput();
+                return;
+            }
         }
 
         // Produce based on rate, scaled by the current miner speed upgrade level
+        changedSinceSave = true;
         float effectiveRate = rate * world.getUpgrades().minerSpeedMultiplier();
         timer += delta;
         if (timer >= 1f / effectiveRate) {
             timer -= 1f / effectiveRate;
-            buffer = new Item(ItemType.oreTypeFromId(oreId));
+            buffer = ore;
         }
     }
 
     private void tryOutput() {
-        // For a 2×2 building, each side has two adjacent tiles
-        int[][] offsets = {
-            // left side
-            { -1, 0 }, { -1, 1 },
-            // right side
-            {  2, 0 }, {  2, 1 },
-            // bottom side
-            { 0, -1 }, { 1, -1 },
-            // top side
-            { 0,  2 }, { 1,  2 }
-        };
-
-        for (int[] o : offsets) {
+        for (int[] o : OUTPUT_OFFSETS) {
             int tx = x + o[0];
             int ty = y + o[1];
 
@@ -86,6 +105,7 @@ public class BasicMiner extends Building {
             if (b instanceof Conveyor c && c.canAcceptAnotherItem()) {
                 c.addIncomingItem(buffer);
                 buffer = null;
+                changedSinceSave = true;
                 return;
             }
 
@@ -97,11 +117,95 @@ public class BasicMiner extends Building {
             // same as when an adjacent conveyor is jammed.
             if (b instanceof Core core && core.acceptItem(buffer)) {
                 buffer = null;
+                changedSinceSave = true;
                 return;
             }
         }
     }
 
+    /**
+     * Where this miner's items go while nothing is backed up: the first output
+     * that can take them. OfflineProgress sends everything here. tryOutput()
+     * falls back to the next output along once this one is full, so a miner
+     * between two lines, or a line and a Core, really spills over into the
+     * other when the first backs up; offline, what doesn't fit is lost.
+     */
+    Building firstOutput() {
+        for (int[] o : OUTPUT_OFFSETS) {
+            Building b = world.getAt(x + o[0], y + o[1]);
+            if (b instanceof Conveyor || b instanceof Core) return b;
+        }
+        return null;
+    }
+
+    private boolean canTouchOutputs() {
+        for (int[] o : OUTPUT_OFFSETS) {
+            Building b = world.getAt(x + o[0], y + o[1]);
+
+            if (b instanceof Conveyor c && !chunk.canTouch(c.line.chunk)) return false;
+            if (b instanceof Core core && !chunk.canTouch(core.chunk)) return false;
+        }
+        return true;
+    }
+
+    private void waitForOutput() {
+        for (int[] o : OUTPUT_OFFSETS) {
+            Building b = world.getAt(x + o[0], y + o[1]);
+
+            if (b instanceof Conveyor c) c.line.waiters.add(this);
+            if (b instanceof Core core) core.waiters.add(this);
+        }
+
+        // Placing a belt or core next to us wakes us up too
+        sleep();
+    }
+
+    /** Whether a miner at (x, y) would sit on ore: at least one tile, all of one kind. */
+    public static boolean hasOre(TileEngine engine, int x, int y) {
+        TileType oreType = null;
+        int oreCount = 0;
+
+        for (int dy = 0; dy < 2; dy++) {
+            for (int dx = 0; dx < 2; dx++) {
+                TileType t = TileType.fromId(engine.getTile(x + dx, y + dy));
+
+                if (t == TileType.COAL || t == TileType.IRON || t == TileType.COPPER) {
+                    if (oreType == null) oreType = t;
+                    if (t != oreType) return false;  // must be uniform ore
+                    oreCount++;
+                }
+            }
+        }
+
+        return oreCount >= 1;  // must have at least one ore tile
+    }
+
+    /** The mined item waiting to be output, or null. */
+    public ItemType getBuffer() {
+        return buffer;
+    }
+
+    /** Seconds banked toward the next item. */
+    public float getTimer() {
+        return timer;
+    }
+
+    /** Loading a save: puts back the buffered item and production progress. */
+    public void restoreState(ItemType buffer, float timer) {
+        this.buffer = buffer;
+        this.timer = timer;
+    }
+
+    @Override
+    public TextureRegion getSprite() {
+        return Assets.basicMiner;
+    }
+
+    @Override
+    public int getMapColor() {
+        return 0x4a86d8ff;
+    }
+
     @Override
     public Building copyAt(int x, int y) {
         return new BasicMiner(x, y, engine);
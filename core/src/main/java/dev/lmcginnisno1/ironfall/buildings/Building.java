@@ -16,31 +16,65 @@ public abstract class Building {
     // on placement and to determine the refund when it's deleted.
     public final int cost;
 
-    protected TextureRegion sprite;
     protected BuildingManager world;
 
-    public Building(int x, int y, int width, int height, TextureRegion sprite, int cost) {
+    // Slot in BuildingManager's OccupancyGrid while placed, 0 otherwise
+    int gridHandle;
+
+    // Scheduling state, see SimChunk: the chunk that owns this building,
+    // whether it wants update() calls (see sleep()), and whether it's on
+    // the chunk's update list
+    SimChunk chunk;
+    boolean awake;
+    boolean listed;
+
+    // Set whenever anything a save records about this building changes
+    // (new buildings start out changed), cleared by takeChangedSinceSave().
+    // Lets autosave write only what moved.
+    boolean changedSinceSave = true;
+
+    public Building(int x, int y, int width, int height, int cost) {
         this.x = x;
         this.y = y;
         this.width = width;
         this.height = height;
-        this.sprite = sprite;
         this.cost = cost;
     }
 
-    public void update(float delta) {}
+    // Buildings with nothing to do per tick just go to sleep
+    public void update(float delta) {
+        sleep();
+    }
+
+    /**
+     * Stops update() being called until something wakes this building again:
+     * a neighbour being placed or removed, or a WaitList it parked itself on.
+     */
+    protected void sleep() {
+        awake = false;
+    }
+
+    /** Whether this building changed since the last save snapshot asked; clears the flag. */
+    public boolean takeChangedSinceSave() {
+        boolean changed = changedSinceSave;
+        changedSinceSave = false;
+        return changed;
+    }
 
     public void render(SpriteBatch batch) {
-        batch.draw(sprite, x * 16, y * 16, width * 16, height * 16);
+        batch.draw(getSprite(), x * 16, y * 16, width * 16, height * 16);
     }
 
     public void setWorld(BuildingManager world) {
         this.world = world;
     }
 
-    public TextureRegion getSprite() {
-        return sprite;
-    }
+    // Looked up when drawn rather than held from construction, so buildings
+    // can be created (e.g. by a headless run) before Assets is loaded
+    public abstract TextureRegion getSprite();
+
+    // Colour of every tile this covers on the zoomed-out map and minimap, RGBA8888
+    public abstract int getMapColor();
 
     public abstract Building copyAt(int x, int y);
 }
@@ -3,28 +3,62 @@ package dev.lmcginnisno1.ironfall.buildings;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
 import com.badlogic.gdx.math.Rectangle;
 import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.ByteArray;
+import com.badlogic.gdx.utils.FloatArray;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.IntIntMap;
 
 import dev.lmcginnisno1.ironfall.game.Upgrades;
+import dev.lmcginnisno1.ironfall.render.ViewBounds;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 
 public class BuildingManager {
 
-    private final ArrayList<Building> buildings = new ArrayList<>();
-    private final HashMap<Long, Building> grid = new HashMap<>();
+    private ArrayList<Building> buildings = new ArrayList<>();
+
+    // Set when a save snapshot holds the list; the next change copies it
+    // rather than editing it under the snapshot
+    private boolean buildingsShared = false;
+
+    // Origins (x, y pairs) of buildings removed since the last save
+    // snapshot, whose chunks' saved records are now out of date
+    private final IntArray removedSinceSave = new IntArray();
+    private final OccupancyGrid grid;
+    private final ChunkScheduler scheduler;
+    private final TransportNetwork transport;
 
     private final Upgrades upgrades = new Upgrades();
 
+    // Per 32x32 chunk (the same chunks as TileEngine's), a new value
+    // whenever a building is placed or removed there, so whatever is drawn
+    // from the layout (the zoomed-out map) knows what to redo
+    private final IntIntMap layoutVersions = new IntIntMap();
+    private int nextLayoutVersion = 1;
+
     private final int width, height;
+    private final int chunksX;
 
     public BuildingManager(int width, int height) {
         this.width = width;
         this.height = height;
+        this.chunksX = (width + (1 << ChunkScheduler.CHUNK_SHIFT) - 1) >> ChunkScheduler.CHUNK_SHIFT;
+        this.grid = new OccupancyGrid(width, height);
+        this.scheduler = new ChunkScheduler(width);
+        this.transport = new TransportNetwork(this, width);
     }
 
-    private long key(int x, int y) {
-        return (((long) x) << 32) | (y & 0xffffffffL);
+    /**
+     * Number of threads the simulation may use. Results are identical for
+     * any value; 1 (the default) runs everything on the calling thread.
+     */
+    public void setSimulationThreads(int threads) {
+        scheduler.setThreads(threads);
+    }
+
+    /** Stops the simulation worker threads, if any. */
+    public void dispose() {
+        scheduler.setThreads(1);
     }
 
     public boolean canPlace(int x, int y, int w, int h) {
@@ -32,7 +66,7 @@ public class BuildingManager {
 
         for (int ix = x; ix < x + w; ix++) {
             for (int iy = y; iy < y + h; iy++) {
-                if (grid.containsKey(key(ix, iy))) return false;
+                if (grid.isOccupied(ix, iy)) return false;
             }
         }
         return true;
@@ -63,40 +97,126 @@ public class BuildingManager {
 
     // Shared registration logic
     private void register(Building b) {
-        buildings.add(b);
+        editableBuildings().add(b);
         b.setWorld(this);
+        b.chunk = scheduler.chunkAt(b.x, b.y);
+        grid.add(b);
+        layoutChanged(b);
 
-        for (int ix = b.x; ix < b.x + b.width; ix++) {
-            for (int iy = b.y; iy < b.y + b.height; iy++) {
-                grid.put(key(ix, iy), b);
-            }
+        if (b instanceof Conveyor c) transport.conveyorPlaced(c);
+
+        wake(b);
+        wakeAround(b);
+    }
+
+    /**
+     * Puts a loaded factory back in one go: every building is registered,
+     * then all transport lines are built once and the belt items put back
+     * (item i sits on itemTiles[i], itemProgress[i] of the way into that
+     * tile, itemGaps[i] behind the item ahead of it, or NaN where the save
+     * didn't keep gaps). Much faster than place() per building, which rebuilds the lines
+     * around every conveyor. Assumes an empty manager and a valid layout.
+     */
+    public void restore(ArrayList<Building> loaded, Array<Conveyor> itemTiles, ByteArray itemTypes, FloatArray itemProgress, FloatArray itemGaps) {
+        ArrayList<Conveyor> conveyors = new ArrayList<>();
+
+        for (Building b : loaded) {
+            editableBuildings().add(b);
+            b.setWorld(this);
+            b.chunk = scheduler.chunkAt(b.x, b.y);
+            grid.add(b);
+            layoutChanged(b);
+
+            if (b instanceof Conveyor c) conveyors.add(c);
         }
+
+        transport.restoreAll(conveyors, itemTiles, itemTypes, itemProgress, itemGaps);
+
+        // Everything re-checks its neighbours on its first tick, then goes
+        // back to sleep if there's nothing to do
+        for (Building b : loaded) wake(b);
     }
 
     public Building getAt(int x, int y) {
-        return grid.get(key(x, y));
+        return grid.get(x, y);
     }
 
     public boolean remove(Building b) {
         if (b instanceof Core) return false;
 
-        buildings.remove(b);
+        editableBuildings().remove(b);
+        grid.remove(b);
+        layoutChanged(b);
+        removedSinceSave.add(b.x, b.y);
+        b.awake = false; // dropped from its chunk's list on the next tick
+
+        if (b instanceof Conveyor c) transport.conveyorRemoved(c);
+
+        wakeAround(b);
+        return true;
+    }
 
-        for (int ix = b.x; ix < b.x + b.width; ix++) {
-            for (int iy = b.y; iy < b.y + b.height; iy++) {
-                grid.remove(key(ix, iy));
+    /** 0 until a building is placed or removed in chunk (cx, cy), then a new value each time. */
+    public int getLayoutVersion(int cx, int cy) {
+        return layoutVersions.get(cy * chunksX + cx, 0);
+    }
+
+    // Every chunk the footprint touches; a Core can straddle four
+    private void layoutChanged(Building b) {
+        int shift = ChunkScheduler.CHUNK_SHIFT;
+        for (int cy = b.y >> shift; cy <= (b.y + b.height - 1) >> shift; cy++) {
+            for (int cx = b.x >> shift; cx <= (b.x + b.width - 1) >> shift; cx++) {
+                layoutVersions.put(cy * chunksX + cx, nextLayoutVersion++);
             }
         }
+    }
 
-        return true;
+    SimChunk chunkAt(int x, int y) {
+        return scheduler.chunkAt(x, y);
+    }
+
+    // Only called between ticks, so any chunk may wake any other
+    private void wake(Building b) {
+        b.chunk.wake(b);
+    }
+
+    // A building appearing or disappearing can unblock anything next to it:
+    // a miner gaining an output, a line whose end now has somewhere to go
+    private void wakeAround(Building b) {
+        for (int x = b.x - 1; x <= b.x + b.width; x++) {
+            for (int y = b.y - 1; y <= b.y + b.height; y++) {
+                Building n = getAt(x, y);
+                if (n == null || n == b) continue;
+
+                wake(n);
+                if (n instanceof Conveyor c) c.line.chunk.wake(c.line);
+            }
+        }
+    }
+
+    /** Call after buying an upgrade: a higher storage cap unblocks the Core. */
+    public void upgradesChanged() {
+        Core core = getCore();
+        if (core != null) core.waiters.wakeAll(core.chunk);
     }
 
     public void update(float delta) {
-        for (Building b : buildings) b.update(delta);
+        scheduler.tick(delta);
     }
 
-    public void render(SpriteBatch batch) {
-        for (Building b : buildings) b.render(batch);
+    // Walks the visible tiles rather than the building list, drawing each
+    // building from its origin tile, so cost follows the view and not the
+    // size of the factory. ViewBounds' margin covers footprints that start
+    // just off-screen.
+    public void render(SpriteBatch batch, ViewBounds view) {
+        if (view.isEmpty()) return;
+
+        for (int y = view.minY; y <= view.maxY; y++) {
+            for (int x = view.minX; x <= view.maxX; x++) {
+                Building b = getAt(x, y);
+                if (b != null && b.x == x && b.y == y) b.render(batch);
+            }
+        }
     }
 
     public void getAllInRect(Rectangle rect, Array<Building> out) {
@@ -110,4 +230,41 @@ public class BuildingManager {
     public ArrayList<Building> getBuildings() {
         return buildings;
     }
+
+    /**
+     * The building list, for a save snapshot to read later from another
+     * thread: it won't change from here on, because the next place() or
+     * remove() works on a copy. Costs nothing until then.
+     */
+    public ArrayList<Building> shareBuildings() {
+        buildingsShared = true;
+        return buildings;
+    }
+
+    /** Appends the origins (x, y pairs) of buildings removed since the last call, and forgets them. */
+    public void takeRemovedSinceSave(IntArray out) {
+        out.addAll(removedSinceSave);
+        removedSinceSave.clear();
+    }
+
+    private ArrayList<Building> editableBuildings() {
+        if (buildingsShared) {
+            buildings = new ArrayList<>(buildings);
+            buildingsShared = false;
+        }
+        return buildings;
+    }
+
+    public ArrayList<TransportLine> getTransportLines() {
+        return transport.getLines();
+    }
+
+    /**
+     * Adds the lines that have items on them and run through the chunks
+     * around view, each once, for drawing. Cost follows what's near the
+     * camera, not the size of the factory.
+     */
+    public void getTransportLinesInView(ViewBounds view, Array<TransportLine> out) {
+        transport.getIndex().query(view, out);
+    }
 }
@@ -0,0 +1,114 @@
+package dev.lmcginnisno1.ironfall.buildings;
+
+import com.badlogic.gdx.utils.IntMap;
+
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Runs each simulation tick as 32x32-tile SimChunks, in two phases:
+ *
+ * 1. Every chunk with awake buildings or lines ticks them, on a ForkJoinPool
+ *    when more than one thread is configured. Code running here only touches
+ *    entities owned by its own chunk. Anything that would reach into another
+ *    chunk (a line handing off across the border, a miner outputting onto a
+ *    belt owned next door, waking a neighbour) is queued on the chunk.
+ * 2. On the calling thread, in chunk order: queued wakes are applied, then
+ *    the queued hand-offs and miner updates run.
+ *
+ * Phase one never reads or writes state outside its chunk and phase two runs
+ * in a fixed order, so a tick comes out identical whatever the thread count.
+ * The single-threaded path is the same two phases, run inline.
+ */
+class ChunkScheduler {
+
+    static final int CHUNK_SHIFT = 5;
+
+    private final int chunksX;
+
+    private final IntMap<SimChunk> byKey = new IntMap<>();
+    private final ArrayList<SimChunk> chunks = new ArrayList<>(); // sorted by key
+    private final ArrayList<SimChunk> busy = new ArrayList<>();
+
+    private ForkJoinPool pool;
+
+    // Only true while phase one runs; see SimChunk.canTouch()
+    volatile boolean inPhaseOne = false;
+
+    ChunkScheduler(int width) {
+        this.chunksX = (width + (1 << CHUNK_SHIFT) - 1) >> CHUNK_SHIFT;
+    }
+
+    /** The chunk owning tile (x, y), created on first use. */
+    SimChunk chunkAt(int x, int y) {
+        int key = (y >> CHUNK_SHIFT) * chunksX + (x >> CHUNK_SHIFT);
+
+        SimChunk chunk = byKey.get(key);
+        if (chunk == null) {
+            chunk = new SimChunk(this, key);
+            byKey.put(key, chunk);
+
+            int at = chunks.size();
+            while (at > 0 && chunks.get(at - 1).key > key) at--;
+            chunks.add(at, chunk);
+        }
+        return chunk;
+    }
+
+    /** 1 runs everything on the calling thread; more starts a worker pool. */
+    void setThreads(int threads) {
+        if (pool != null) {
+            pool.shutdown();
+            pool = null;
+        }
+        if (threads > 1) pool = new ForkJoinPool(threads);
+    }
+
+    void tick(float delta) {
+        busy.clear();
+        for (int i = 0; i < chunks.size(); i++) {
+            SimChunk c = chunks.get(i);
+            if (c.hasWork()) busy.add(c);
+        }
+
+        inPhaseOne = true;
+        try {
+            if (pool == null || busy.size() < 2) {
+                for (int i = 0; i < busy.size(); i++) busy.get(i).tick(delta);
+            } else {
+                int grain = Math.max(1, busy.size() / (pool.getParallelism() * 4));
+                pool.invoke(new TickTask(delta, 0, busy.size(), grain));
+            }
+        } finally {
+            inPhaseOne = false;
+        }
+
+        for (int i = 0; i < busy.size(); i++) busy.get(i).flushWakes();
+        for (int i = 0; i < busy.size(); i++) busy.get(i).runDeferred(delta);
+    }
+
+    private final class TickTask extends RecursiveAction {
+
+        private final float delta;
+        private final int from, to, grain;
+
+        TickTask(float delta, int from, int to, int grain) {
+            this.delta = delta;
+            this.from = from;
+            this.to = to;
+            this.grain = grain;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= grain) {
+                for (int i = from; i < to; i++) busy.get(i).tick(delta);
+                return;
+            }
+
+            int mid = (from + to) >>> 1;
+            invokeAll(new TickTask(delta, from, mid, grain), new TickTask(delta, mid, to, grain));
+        }
+    }
+}
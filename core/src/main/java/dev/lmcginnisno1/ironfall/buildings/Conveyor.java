@@ -1,128 +1,76 @@
 package dev.lmcginnisno1.ironfall.buildings;
 
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
-import com.badlogic.gdx.utils.Array;
+import dev.lmcginnisno1.ironfall.game.Upgrades;
 import dev.lmcginnisno1.ironfall.tiles.Assets;
-import dev.lmcginnisno1.ironfall.items.Item;
+import dev.lmcginnisno1.ironfall.items.ItemType;
 
 public class Conveyor extends Building {
 
-    public enum Direction { UP, DOWN, LEFT, RIGHT }
-    public final Direction direction;
+    public enum Direction {
+        UP(0, 1), DOWN(0, -1), LEFT(-1, 0), RIGHT(1, 0);
+
+        // Tile step in this direction
+        public final int dx;
+        public final int dy;
 
-    // Mindustry-style moving item
-    public static class MovingItem {
-        public Item item;
-        public float progress; // 0 → 1
+        Direction(int dx, int dy) {
+            this.dx = dx;
+            this.dy = dy;
+        }
     }
 
-    // Multiple items per tile
-    private final Array<MovingItem> items = new Array<>();
+    public final Direction direction;
+
+    // Items aren't stored per tile: every conveyor belongs to exactly one
+    // TransportLine, which simulates the whole run at once. These are set
+    // by TransportNetwork whenever the line is (re)built.
+    TransportLine line;
+    int lineIndex;
+    int mark; // TransportNetwork traversal scratch
 
     // Movement timing
-    private static final float MOVE_TIME = 0.25f; // 4 items/sec
-    private static final float SPACING = 0.33f;   // minimum distance between items
-
-    // Cosmetic belt animation (unchanged)
-    private float animPhase = 0f;
+    static final float MOVE_TIME = 0.25f; // seconds per tile, before belt upgrades
 
     public static final int COST = 5;
 
+    /** How fast items move along a belt, in tiles a second. */
+    public static float tilesPerSecond(Upgrades upgrades) {
+        return upgrades.beltSpeedMultiplier() / MOVE_TIME;
+    }
+
     public
     Conveyor(int x, int y, Direction direction) {
-        super(x, y, 1, 1, getSpriteFor(direction), COST);
+        super(x, y, 1, 1, COST);
         this.direction = direction;
     }
 
-    private static TextureRegion getSpriteFor(Direction dir) {
-        return switch (dir) {
-            case UP -> Assets.conveyorUp;
-            case DOWN -> Assets.conveyorDown;
-            case LEFT -> Assets.conveyorLeft;
-            case RIGHT -> Assets.conveyorRight;
+    @Override
+    public TextureRegion getSprite() {
+        return switch (direction) {
+            case UP -> Assets.beltUp;
+            case DOWN -> Assets.beltDown;
+            case LEFT -> Assets.beltLeft;
+            case RIGHT -> Assets.beltRight;
         };
     }
 
-    // Called by upstream belts
-    public boolean canAcceptAnotherItem() {
-        if (items.size == 0) return true;
-        return items.peek().progress >= SPACING;
-    }
-
-    public void addIncomingItem(Item item) {
-        MovingItem m = new MovingItem();
-        m.item = item;
-        m.progress = 0f;
-        items.add(m);
-    }
-
     @Override
-    public void update(float delta) {
-        // Cosmetic belt animation
-        animPhase += delta / MOVE_TIME;
-        if (animPhase >= 1f) animPhase -= 1f;
-
-        if (items.size == 0) return;
-
-        float speed = (delta / MOVE_TIME) * world.getUpgrades().beltSpeedMultiplier();
-
-        for (int i = 0; i < items.size; i++) {
-            MovingItem m = items.get(i);
-
-            // Enforce spacing behind previous item
-            if (i > 0) {
-                MovingItem prev = items.get(i - 1);
-                float maxProgress = prev.progress - SPACING;
-                if (m.progress > maxProgress) {
-                    m.progress = maxProgress;
-                }
-            }
-
-            m.progress += speed;
-
-            if (m.progress >= 1f) {
-                tryMoveForward(m);
-            }
-        }
+    public int getMapColor() {
+        return 0xb4b4b4ff;
     }
 
-    private void tryMoveForward(MovingItem m) {
-        int nx = x, ny = y;
-
-        switch (direction) {
-            case UP -> ny++;
-            case DOWN -> ny--;
-            case LEFT -> nx--;
-            case RIGHT -> nx++;
-        }
-
-        Building b = world.getAt(nx, ny);
-
-        // Move to next conveyor
-        if (b instanceof Conveyor next) {
-            if (next.canAcceptAnotherItem()) {
-                next.addIncomingItem(m.item);
-                items.removeValue(m, true);
-                return;
-            }
-        }
-
-        // Move into core (unless it's at its storage cap for this resource,
-        // in which case fall through to the "blocked" case below)
-        if (b instanceof Core core) {
-            if (core.acceptItem(m.item)) {
-                items.removeValue(m, true);
-                return;
-            }
-        }
+    // Called by miners feeding this tile
+    public boolean canAcceptAnotherItem() {
+        return line.canInsert(lineIndex);
+    }
 
-        // Blocked → wait at edge
-        m.progress = 0.99f;
+    public void addIncomingItem(ItemType type) {
+        line.tryInsert(lineIndex, type);
     }
 
-    // Used by renderer
-    public Array<MovingItem> getItems() {
-        return items;
+    public TransportLine getLine() {
+        return line;
     }
 
     @Override
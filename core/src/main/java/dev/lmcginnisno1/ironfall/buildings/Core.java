@@ -1,56 +1,81 @@
 package dev.lmcginnisno1.ironfall.buildings;
 
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import dev.lmcginnisno1.ironfall.tiles.Assets;
-import dev.lmcginnisno1.ironfall.items.Item;
 import dev.lmcginnisno1.ironfall.items.ItemType;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Arrays;
 
 public class Core extends Building {
 
-    private final Map<ItemType, Integer> inventory = new HashMap<>();
+    private static final ItemType[] TYPES = ItemType.values();
+
+    // Indexed by ItemType ordinal; acceptItem() runs for every delivered item,
+    // so no boxing here
+    private final int[] inventory = new int[TYPES.length];
 
     // Instead of storing percentages, we store the exact locked amount of items to sell
-    private final Map<ItemType, Integer> saleQuantities = new HashMap<>();
+    private final int[] saleQuantities = new int[TYPES.length];
+
+    // Lines and miners blocked on a full resource; woken when stock goes down
+    // or the cap goes up
+    final WaitList waiters = new WaitList();
+
+    int mark; // OfflineProgress scratch
 
     public Core(int x, int y) {
-        super(x, y, 4, 4, Assets.core, 0);
+        super(x, y, 4, 4, 0);
     }
 
     /** Returns false (accepting nothing) if this resource is already at its storage cap. */
-    public boolean acceptItem(Item item) {
-        ItemType type = item.type();
+    public boolean acceptItem(ItemType type) {
         int cap = world.getUpgrades().storageCap();
-        int have = inventory.getOrDefault(type, 0);
+        int have = inventory[type.ordinal()];
 
         if (have >= cap) return false;
 
-        inventory.put(type, have + 1);
+        inventory[type.ordinal()] = have + 1;
+        changedSinceSave = true;
         return true;
     }
 
+    /** Adds count of a resource, cap or no cap; for OfflineProgress, which works the cap out itself. */
+    void addStock(ItemType type, int count) {
+        inventory[type.ordinal()] += count;
+        changedSinceSave = true;
+    }
+
     @Override
     public void update(float delta) {
-        // Core has no active behavior yet
+        // Core has no active behavior yet; deliveries come in through acceptItem()
+        sleep();
+    }
+
+    public int getAmount(ItemType type) {
+        return inventory[type.ordinal()];
     }
 
-    public Map<ItemType, Integer> getInventory() {
-        return inventory;
+    /** Loading a save: sets the stored amount and locked sale quantity of one resource. */
+    public void restoreAmount(ItemType type, int amount, int saleQuantity) {
+        inventory[type.ordinal()] = amount;
+        saleQuantities[type.ordinal()] = saleQuantity;
+        changedSinceSave = true;
     }
 
     /** Spends stored resources (e.g. to fund an upgrade). Returns false, spending nothing, if insufficient. */
     public boolean trySpendResource(ItemType type, int amount) {
-        int have = inventory.getOrDefault(type, 0);
+        int have = inventory[type.ordinal()];
         if (have < amount) return false;
-        inventory.put(type, have - amount);
+        inventory[type.ordinal()] = have - amount;
+        changedSinceSave = true;
+        if (amount > 0) waiters.wakeAll(chunk);
         return true;
     }
 
     // --- ECONOMIC SYSTEM WITH LOCKED QUANTITIES ---
 
     public int getSaleQuantity(ItemType type) {
-        return saleQuantities.getOrDefault(type, 0);
+        return saleQuantities[type.ordinal()];
     }
 
     /**
@@ -58,12 +83,17 @@ public class Core extends Building {
      * This locks in an absolute number of items.
      */
     public void setSalePercentage(ItemType type, float pct) {
-        int totalAmount = inventory.getOrDefault(type, 0);
+        saleQuantities[type.ordinal()] = saleQuantityAt(type, pct);
+        changedSinceSave = true;
+    }
+
+    /** The quantity setSalePercentage(type, pct) would lock in, without setting it. */
+    public int saleQuantityAt(ItemType type, float pct) {
+        int totalAmount = inventory[type.ordinal()];
         float clampedPct = Math.max(0f, Math.min(1f, pct));
 
         // Translate the visual drag percentage to a hard locked integer amount
-        int targetQty = Math.round(totalAmount * clampedPct);
-        saleQuantities.put(type, targetQty);
+        return Math.round(totalAmount * clampedPct);
     }
 
     /**
@@ -72,9 +102,8 @@ public class Core extends Building {
     public int sellSelectedItems() {
         int totalEarnings = 0;
 
-        for (Map.Entry<ItemType, Integer> entry : inventory.entrySet()) {
-            ItemType type = entry.getKey();
-            int currentAmount = entry.getValue();
+        for (ItemType type : TYPES) {
+            int currentAmount = inventory[type.ordinal()];
             int qtyToSell = getSaleQuantity(type);
 
             // Guard: ensure we don't sell more than actually available (safety check)
@@ -85,13 +114,15 @@ public class Core extends Building {
                 totalEarnings += (qtyToSell * unitPrice);
 
                 // Deduct the locked quantity
-                inventory.put(type, currentAmount - qtyToSell);
+                inventory[type.ordinal()] = currentAmount - qtyToSell;
             }
 
             // Reset this item's sale target back to 0
-            saleQuantities.put(type, 0);
+            saleQuantities[type.ordinal()] = 0;
         }
 
+        changedSinceSave = true;
+        if (totalEarnings > 0) waiters.wakeAll(chunk);
         return totalEarnings;
     }
 
@@ -109,21 +140,32 @@ public class Core extends Building {
     public int sellAllItems() {
         int totalEarnings = 0;
 
-        for (Map.Entry<ItemType, Integer> entry : inventory.entrySet()) {
-            ItemType type = entry.getKey();
-            int qty = entry.getValue();
+        for (ItemType type : TYPES) {
+            int qty = inventory[type.ordinal()];
             if (qty > 0) {
                 totalEarnings += (qty * getPriceForType(type));
             }
         }
 
         // Clean out inventory and clear slider targets
-        inventory.clear();
-        saleQuantities.clear();
+        Arrays.fill(inventory, 0);
+        Arrays.fill(saleQuantities, 0);
+        changedSinceSave = true;
+        waiters.wakeAll(chunk);
 
         return totalEarnings;
     }
 
+    @Override
+    public TextureRegion getSprite() {
+        return Assets.core;
+    }
+
+    @Override
+    public int getMapColor() {
+        return 0xe8c547ff;
+    }
+
     @Override
     public Building copyAt(int x, int y) {
         return new Core(x, y);
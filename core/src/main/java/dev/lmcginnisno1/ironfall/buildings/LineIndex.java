@@ -0,0 +1,89 @@
+package dev.lmcginnisno1.ironfall.buildings;
+
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntMap;
+import dev.lmcginnisno1.ironfall.render.ViewBounds;
+
+/**
+ * Transport lines bucketed by the 32x32 chunks their conveyors run through,
+ * so drawing belt items only has to look at the lines around the camera
+ * rather than every line in the factory. A line is listed in each chunk it
+ * passes through. Kept up to date by TransportNetwork as lines are built
+ * and dissolved, which only happens when conveyors are placed or removed;
+ * items moving along don't touch it.
+ */
+class LineIndex {
+
+    private static final int SHIFT = ChunkScheduler.CHUNK_SHIFT;
+
+    private final int chunksX;
+    private final IntMap<Array<TransportLine>> buckets = new IntMap<>();
+
+    // Bumped per query; a line whose seen matches was already returned
+    private int stamp = 0;
+
+    LineIndex(int width) {
+        this.chunksX = (width + (1 << SHIFT) - 1) >> SHIFT;
+    }
+
+    void add(TransportLine line) {
+        int last = -1;
+        for (int i = 0; i < line.getLength(); i++) {
+            Conveyor c = line.getConveyor(i);
+            int key = keyAt(c.x, c.y);
+            if (key == last) continue;
+            last = key;
+
+            Array<TransportLine> bucket = buckets.get(key);
+            if (bucket == null) {
+                bucket = new Array<>(false, 4);
+                buckets.put(key, bucket);
+            }
+            // A line can leave a chunk and come back
+            if (!bucket.contains(line, true)) bucket.add(line);
+        }
+    }
+
+    void remove(TransportLine line) {
+        int last = -1;
+        for (int i = 0; i < line.getLength(); i++) {
+            Conveyor c = line.getConveyor(i);
+            int key = keyAt(c.x, c.y);
+            if (key == last) continue;
+            last = key;
+
+            Array<TransportLine> bucket = buckets.get(key);
+            if (bucket == null) continue;
+            bucket.removeValue(line, true);
+            if (bucket.isEmpty()) buckets.remove(key);
+        }
+    }
+
+    void clear() {
+        buckets.clear();
+    }
+
+    /** Adds every line with items on it that runs through a chunk overlapping view, once each. */
+    void query(ViewBounds view, Array<TransportLine> out) {
+        if (view.isEmpty()) return;
+        stamp++;
+
+        for (int cy = view.minY >> SHIFT; cy <= view.maxY >> SHIFT; cy++) {
+            for (int cx = view.minX >> SHIFT; cx <= view.maxX >> SHIFT; cx++) {
+                Array<TransportLine> bucket = buckets.get(cy * chunksX + cx);
+                if (bucket == null) continue;
+
+                for (int i = 0; i < bucket.size; i++) {
+                    TransportLine line = bucket.get(i);
+                    if (line.seen == stamp) continue;
+                    line.seen = stamp;
+                    if (line.getItemCount() > 0) out.add(line);
+                }
+            }
+        }
+    }
+
+    private int keyAt(int x, int y) {
+        return (y >> SHIFT) * chunksX + (x >> SHIFT);
+    }
+}
@@ -0,0 +1,130 @@
+package dev.lmcginnisno1.ironfall.buildings;
+
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.LongMap;
+
+/**
+ * Tile -> Building lookup for BuildingManager. Each cell holds an int handle
+ * (0 = empty) into a side table of buildings, so a lookup is an array read
+ * and never boxes or hashes anything.
+ *
+ * Maps up to DENSE_LIMIT tiles use one flat int[] covering the whole map.
+ * Anything bigger switches to 32x32 chunks allocated on first write and
+ * dropped again once empty, so memory follows the built area instead of the
+ * map bounds.
+ */
+class OccupancyGrid {
+
+    // 16M cells = 64 MB of handles; past that only allocate what's built on
+    static final long DENSE_LIMIT = 1L << 24;
+
+    private static final int CHUNK_SHIFT = 5;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final int CHUNK_AREA = CHUNK_SIZE * CHUNK_SIZE;
+
+    private final int width, height;
+
+    // Exactly one of these is non-null
+    private final int[] dense;
+    // Sparse chunks carry one extra int at [CHUNK_AREA]: their occupied cell count
+    private final LongMap<int[]> chunks;
+
+    // Handle -> building. Slot 0 is never used so that 0 can mean "empty".
+    private Building[] slots = new Building[64];
+    private final IntArray freeHandles = new IntArray();
+    private int nextHandle = 1;
+
+    OccupancyGrid(int width, int height) {
+        this(width, height, (long) width * height > DENSE_LIMIT);
+    }
+
+    OccupancyGrid(int width, int height, boolean sparse) {
+        this.width = width;
+        this.height = height;
+        this.dense = sparse ? null : new int[width * height];
+        this.chunks = sparse ? new LongMap<>() : null;
+    }
+
+    boolean isSparse() {
+        return dense == null;
+    }
+
+    Building get(int x, int y) {
+        return slots[handleAt(x, y)];
+    }
+
+    boolean isOccupied(int x, int y) {
+        return handleAt(x, y) != 0;
+    }
+
+    int handleAt(int x, int y) {
+        if (x < 0 || x >= width || y < 0 || y >= height) return 0;
+
+        if (dense != null) return dense[y * width + x];
+
+        int[] chunk = chunks.get(chunkKey(x >> CHUNK_SHIFT, y >> CHUNK_SHIFT));
+        return chunk == null ? 0 : chunk[((y & CHUNK_MASK) << CHUNK_SHIFT) | (x & CHUNK_MASK)];
+    }
+
+    /** Claims every cell under b's footprint. Caller has already checked they're free. */
+    void add(Building b) {
+        int handle = freeHandles.size > 0 ? freeHandles.pop() : nextHandle++;
+        if (handle >= slots.length) {
+            Building[] grown = new Building[slots.length * 2];
+            System.arraycopy(slots, 0, grown, 0, slots.length);
+            slots = grown;
+        }
+
+        slots[handle] = b;
+        b.gridHandle = handle;
+        fill(b, handle);
+    }
+
+    void remove(Building b) {
+        int handle = b.gridHandle;
+        if (handle == 0 || slots[handle] != b) return;
+
+        fill(b, 0);
+        slots[handle] = null;
+        freeHandles.add(handle);
+        b.gridHandle = 0;
+    }
+
+    private void fill(Building b, int handle) {
+        for (int iy = b.y; iy < b.y + b.height; iy++) {
+            for (int ix = b.x; ix < b.x + b.width; ix++) {
+                // placeCore skips canPlace, so don't trust the footprint blindly
+                if (ix < 0 || ix >= width || iy < 0 || iy >= height) continue;
+
+                if (dense != null) {
+                    dense[iy * width + ix] = handle;
+                } else {
+                    setSparse(ix, iy, handle);
+                }
+            }
+        }
+    }
+
+    private void setSparse(int x, int y, int handle) {
+        long key = chunkKey(x >> CHUNK_SHIFT, y >> CHUNK_SHIFT);
+        int[] chunk = chunks.get(key);
+
+        if (chunk == null) {
+            if (handle == 0) return;
+            chunk = new int[CHUNK_AREA + 1];
+            chunks.put(key, chunk);
+        }
+
+        int i = ((y & CHUNK_MASK) << CHUNK_SHIFT) | (x & CHUNK_MASK);
+        int before = chunk[i];
+        chunk[i] = handle;
+
+        if (before == 0 && handle != 0) chunk[CHUNK_AREA]++;
+        if (before != 0 && handle == 0 && --chunk[CHUNK_AREA] == 0) chunks.remove(key);
+    }
+
+    private static long chunkKey(int cx, int cy) {
+        return ((long) cy << 32) | (cx & 0xffffffffL);
+    }
+}
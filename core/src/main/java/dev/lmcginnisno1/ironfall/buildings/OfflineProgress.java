@@ -0,0 +1,221 @@
+package dev.lmcginnisno1.ironfall.buildings;
+
+import dev.lmcginnisno1.ironfall.game.Upgrades;
+import dev.lmcginnisno1.ironfall.items.ItemType;
+
+import java.util.ArrayList;
+
+/**
+ * Works out what the factory would have delivered over a stretch of time
+ * without ticking through it, for catching up after the game was closed.
+ *
+ * The factory is treated as a flow network in its steady state:
+ *
+ *   sources  every miner on ore, at its rate x minerSpeedMultiplier() items
+ *            a second, into the first conveyor or Core next to it (see
+ *            BasicMiner.firstOutput() for when that isn't where they go)
+ *   lines    carry what flows in, up to JAMMED_GAP-spaced items moving at
+ *            Conveyor.tilesPerSecond(); past that the mix is scaled down
+ *            to fit. Whatever comes out goes to the line or Core the end of
+ *            the line feeds, or nowhere at a dead end
+ *   Cores    take everything until a resource reaches storageCap()
+ *
+ * Lines are solved in upstream-to-downstream order, so one pass gives every
+ * Core its delivery rate per resource. From there stock rises linearly until
+ * the first resource hits its cap. At that point, as in the game, every line
+ * carrying that resource into that Core backs up, and everything feeding
+ * those lines with it, so the flows are solved again without them and time
+ * moves on to the next resource to fill up. That's at most one solve per
+ * resource per Core, each O(buildings), however long the absence.
+ *
+ * It leaves out what's on the belts and in the miners' buffers, and the
+ * time a line takes to fill before it delivers anything; over an absence
+ * long enough to be worth catching up, neither is noticeable. A line that
+ * loops back into itself is counted as delivering nothing.
+ */
+public final class OfflineProgress {
+
+    private static final ItemType[] TYPES = ItemType.values();
+    private static final int T = TYPES.length;
+
+    // The average gap between items on a line that's fed faster than it
+    // moves. Items get on at tile boundaries, and only where there's SPACING
+    // ahead and behind, so once such a line jams every gap is at least
+    // SPACING and short of about 2 x SPACING (a wider one would take another
+    // item as it passed a waiting miner). This takes the middle, which puts
+    // the estimate within 0.67x to 1.33x of what the line really carries.
+    // Saturated rows like OfflineProgressTest's average 0.5 tiles at the base
+    // belt speed, and 0.33 to 0.5 across the upgrade levels.
+    private static final double JAMMED_GAP = 1.5 * TransportLine.SPACING;
+
+    private OfflineProgress() {}
+
+    /**
+     * Adds seconds' worth of deliveries to every Core's stock, without
+     * touching anything else. Call between ticks. Returns the number of each
+     * resource (by ordinal) delivered in all.
+     */
+    public static int[] catchUp(BuildingManager world, double seconds) {
+        Upgrades upgrades = world.getUpgrades();
+        ArrayList<TransportLine> lines = world.getTransportLines();
+        int lineCount = lines.size();
+
+        ArrayList<Core> cores = new ArrayList<>();
+        for (Building b : world.getBuildings()) {
+            if (b instanceof Core core) cores.add(core);
+        }
+        int coreCount = cores.size();
+        if (coreCount == 0 || seconds <= 0) return new int[T];
+
+        for (int c = 0; c < coreCount; c++) cores.get(c).mark = c;
+        for (int l = 0; l < lineCount; l++) lines.get(l).mark = l;
+
+        // Where each line's output goes: a line index, or -(core index) - 2,
+        // or -1 for nowhere
+        int[] target = new int[lineCount];
+        int[] feeders = new int[lineCount];
+        for (int l = 0; l < lineCount; l++) {
+            Building b = lines.get(l).handOffTarget();
+            if (b instanceof Conveyor next) {
+                target[l] = next.line.mark;
+                feeders[target[l]]++;
+            } else if (b instanceof Core core) {
+                target[l] = -core.mark - 2;
+            } else {
+                target[l] = -1;
+            }
+        }
+
+        // Upstream-to-downstream order. Lines in a loop never get in.
+        int[] order = new int[lineCount];
+        int ordered = 0;
+        for (int l = 0; l < lineCount; l++) {
+            if (feeders[l] == 0) order[ordered++] = l;
+        }
+        for (int i = 0; i < ordered; i++) {
+            int next = target[order[i]];
+            if (next >= 0 && --feeders[next] == 0) order[ordered++] = next;
+        }
+
+        // Each line feeds exactly one thing, so the lines form a tree under
+        // every Core, and a Core filling up only changes the flow in its own
+        // tree. Group the ordered lines by the Core they end up at (-1 for
+        // none), keeping the order within each group.
+        int[] sink = new int[lineCount];
+        int[] groupStart = new int[coreCount + 1];
+        for (int i = ordered - 1; i >= 0; i--) {
+            int l = order[i];
+            int next = target[l];
+            sink[l] = next >= 0 ? sink[next] : next <= -2 ? -next - 2 : -1;
+            if (sink[l] >= 0) groupStart[sink[l] + 1]++;
+        }
+        for (int c = 0; c < coreCount; c++) groupStart[c + 1] += groupStart[c];
+        int[] grouped = new int[groupStart[coreCount]];
+        int[] fill = groupStart.clone();
+        for (int i = 0; i < ordered; i++) {
+            int l = order[i];
+            if (sink[l] >= 0) grouped[fill[sink[l]]++] = l;
+        }
+
+        // What the miners put in, per line and per Core
+        double minerSpeed = upgrades.minerSpeedMultiplier();
+        double[] minedIntoLine = new double[lineCount * T];
+        double[] minedIntoCore = new double[coreCount * T];
+        for (Building b : world.getBuildings()) {
+            if (!(b instanceof BasicMiner miner) || miner.ore == null) continue;
+
+            double rate = miner.rate * minerSpeed;
+            Building out = miner.firstOutput();
+            if (out instanceof Conveyor c) minedIntoLine[c.line.mark * T + miner.ore.ordinal()] += rate;
+            else if (out instanceof Core core) minedIntoCore[core.mark * T + miner.ore.ordinal()] += rate;
+        }
+
+        double lineCapacity = Conveyor.tilesPerSecond(upgrades) / JAMMED_GAP;
+        int cap = upgrades.storageCap();
+
+        double[] flow = new double[lineCount * T];
+        double[] stock = new double[T];
+        boolean[] full = new boolean[T];
+        double[] delivery = new double[T];
+        int[] delivered = new int[T];
+
+        for (int c = 0; c < coreCount; c++) {
+            Core core = cores.get(c);
+            for (int t = 0; t < T; t++) {
+                stock[t] = core.getAmount(TYPES[t]);
+                full[t] = stock[t] >= cap;
+            }
+
+            double remaining = seconds;
+            while (remaining > 0) {
+                solve(grouped, groupStart[c], groupStart[c + 1], target, minedIntoLine, minedIntoCore, c * T,
+                    full, lineCapacity, flow, delivery);
+
+                // Run until the next resource fills up, or to the end
+                double step = remaining;
+                int filling = -1;
+                for (int t = 0; t < T; t++) {
+                    if (delivery[t] <= 0) continue;
+                    double untilFull = (cap - stock[t]) / delivery[t];
+                    if (untilFull < step) {
+                        step = untilFull;
+                        filling = t;
+                    }
+                }
+
+                for (int t = 0; t < T; t++) stock[t] += delivery[t] * step;
+                remaining -= step;
+
+                if (filling < 0) break;
+                stock[filling] = cap;
+                full[filling] = true;
+            }
+
+            for (int t = 0; t < T; t++) {
+                int added = (int) Math.min(cap, Math.floor(stock[t])) - core.getAmount(TYPES[t]);
+                if (added <= 0) continue;
+
+                core.addStock(TYPES[t], added);
+                delivered[t] += added;
+            }
+        }
+        return delivered;
+    }
+
+    // One pass over one Core's lines, grouped[from .. to) in order: flow[]
+    // becomes what each line carries and delivery[] what the Core receives,
+    // per resource a second
+    private static void solve(int[] grouped, int from, int to, int[] target, double[] minedIntoLine,
+                              double[] minedIntoCore, int coreAt, boolean[] full, double lineCapacity,
+                              double[] flow, double[] delivery) {
+        for (int i = from; i < to; i++) {
+            int at = grouped[i] * T;
+            System.arraycopy(minedIntoLine, at, flow, at, T);
+        }
+        for (int t = 0; t < T; t++) delivery[t] = full[t] ? 0 : minedIntoCore[coreAt + t];
+
+        for (int i = from; i < to; i++) {
+            int l = grouped[i];
+            int at = l * T;
+
+            double total = 0;
+            for (int t = 0; t < T; t++) total += flow[at + t];
+            if (total <= 0) continue;
+
+            double scale = Math.min(1.0, lineCapacity / total);
+            int next = target[l];
+            if (next >= 0) {
+                for (int t = 0; t < T; t++) flow[next * T + t] += flow[at + t] * scale;
+                continue;
+            }
+
+            // Into the Core. One full resource on a line stops everything
+            // behind it.
+            boolean blocked = false;
+            for (int t = 0; t < T; t++) blocked |= flow[at + t] > 0 && full[t];
+            if (blocked) continue;
+
+            for (int t = 0; t < T; t++) delivery[t] += flow[at + t] * scale;
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package dev.lmcginnisno1.ironfall.buildings;
+
+import java.util.ArrayList;
+
+/**
+ * One 32x32-tile piece of the simulation: the awake buildings and lines it
+ * owns, plus an outbox for anything that reaches into another chunk during
+ * phase one of a tick. See ChunkScheduler for the protocol.
+ *
+ * Buildings belong to the chunk of their origin tile and lines to the chunk
+ * of their last (hand-off) tile.
+ */
+final class SimChunk {
+
+    final int key;
+    private final ChunkScheduler scheduler;
+
+    // Update lists. An entity is on its list while 'listed'; once it stops
+    // being awake it's dropped the next time the list is walked.
+    private final ArrayList<Building> buildings = new ArrayList<>();
+    private final ArrayList<TransportLine> lines = new ArrayList<>();
+
+    // Phase-one outbox, drained in chunk order during phase two
+    private final ArrayList<Building> wakeBuildings = new ArrayList<>();
+    private final ArrayList<TransportLine> wakeLines = new ArrayList<>();
+    private final ArrayList<Building> deferredBuildings = new ArrayList<>();
+    private final ArrayList<TransportLine> deferredLines = new ArrayList<>();
+
+    SimChunk(ChunkScheduler scheduler, int key) {
+        this.scheduler = scheduler;
+        this.key = key;
+    }
+
+    boolean hasWork() {
+        return !buildings.isEmpty() || !lines.isEmpty();
+    }
+
+    /** Whether code running for this chunk may touch state owned by {@code other} right now. */
+    boolean canTouch(SimChunk other) {
+        return other == this || !scheduler.inPhaseOne;
+    }
+
+    // --- Phase one ---
+
+    void tick(float delta) {
+        // Anything woken mid-pass is appended past n and starts next tick,
+        // so nothing is updated twice in one tick
+        int n = buildings.size();
+        int kept = 0;
+        for (int i = 0; i < n; i++) {
+            Building b = buildings.get(i);
+            if (b.awake) b.update(delta);
+
+            if (b.awake) {
+                buildings.set(kept++, b);
+            } else {
+                b.listed = false;
+            }
+        }
+        for (int i = n; i < buildings.size(); i++) buildings.set(kept++, buildings.get(i));
+        while (buildings.size() > kept) buildings.remove(buildings.size() - 1);
+
+        n = lines.size();
+        kept = 0;
+        for (int i = 0; i < n; i++) {
+            TransportLine l = lines.get(i);
+            if (l.awake && !l.dead) l.update(delta);
+
+            if (l.awake && !l.dead) {
+                lines.set(kept++, l);
+            } else {
+                l.listed = false;
+            }
+        }
+        for (int i = n; i < lines.size(); i++) lines.set(kept++, lines.get(i));
+        while (lines.size() > kept) lines.remove(lines.size() - 1);
+    }
+
+    /** Runs b's whole update() in phase two instead; b is left awake until then. */
+    void defer(Building b) {
+        deferredBuildings.add(b);
+    }
+
+    /** Runs l.finishTick() in phase two instead. */
+    void defer(TransportLine l) {
+        deferredLines.add(l);
+    }
+
+    // --- Waking, from code running on behalf of this chunk ---
+
+    void wake(Building b) {
+        if (b.gridHandle == 0) return; // removed
+
+        if (!canTouch(b.chunk)) {
+            wakeBuildings.add(b);
+            return;
+        }
+
+        SimChunk owner = b.chunk;
+        b.awake = true;
+        if (!b.listed) {
+            b.listed = true;
+            owner.buildings.add(b);
+        }
+    }
+
+    void wake(TransportLine l) {
+        if (!canTouch(l.chunk)) {
+            wakeLines.add(l);
+            return;
+        }
+        if (l.dead) return;
+
+        SimChunk owner = l.chunk;
+        l.awake = true;
+        if (!l.listed) {
+            l.listed = true;
+            owner.lines.add(l);
+        }
+    }
+
+    // --- Phase two ---
+
+    void flushWakes() {
+        for (int i = 0; i < wakeBuildings.size(); i++) wake(wakeBuildings.get(i));
+        for (int i = 0; i < wakeLines.size(); i++) wake(wakeLines.get(i));
+        wakeBuildings.clear();
+        wakeLines.clear();
+    }
+
+    void runDeferred(float delta) {
+        for (int i = 0; i < deferredBuildings.size(); i++) {
+            Building b = deferredBuildings.get(i);
+            if (b.awake) b.update(delta);
+        }
+        for (int i = 0; i < deferredLines.size(); i++) {
+            TransportLine l = deferredLines.get(i);
+            if (!l.dead) l.finishTick();
+        }
+        deferredBuildings.clear();
+        deferredLines.clear();
+    }
+}
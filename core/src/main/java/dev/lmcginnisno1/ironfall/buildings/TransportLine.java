@@ -0,0 +1,416 @@
+package dev.lmcginnisno1.ironfall.buildings;
+
+import dev.lmcginnisno1.ironfall.items.ItemType;
+
+/**
+ * A run of connected conveyors simulated as one belt. Items are kept front
+ * (downstream end) to back in a ring buffer of two primitive arrays: the
+ * ItemType ordinal, and rather than a position, the gap to the item in front
+ * of it; the front item's gap is its distance to the end of the line. All
+ * distances are in tiles. Nothing here allocates once the buffer has grown
+ * to the line's working size.
+ *
+ * Moving the belt is then a matter of shrinking the first gap that still has
+ * slack: everything behind it moves with it for free. A fully backed-up line
+ * costs nothing but finding that there is no slack left, and after that it
+ * goes to sleep until the line or Core it's blocked on frees up (or something
+ * is inserted). Which conveyors form a line is decided by TransportNetwork.
+ */
+public class TransportLine {
+
+    // Items never close up tighter than this (matches the old per-tile spacing)
+    static final float SPACING = 0.33f;
+
+    // Render interpolation: how far each part of the line moved last tick.
+    // Usually one group moves; a partly backed-up line can have a few.
+    private static final int MAX_MOVE_SEGMENTS = 4;
+
+    private final BuildingManager world;
+
+    private final Conveyor[] tiles;   // upstream to downstream
+    private final int length;
+
+    // Ring buffer, logical index i lives at (head + i) & mask. Capacity is
+    // always a power of two.
+    private byte[] types = new byte[8];
+    private float[] gaps = new float[8];
+    private int mask = 7;
+    private int head = 0;
+    private int count = 0;
+
+    // Items at index >= moveStart[k] moved moveAmount[k] further last tick
+    private final int[] moveStart = new int[MAX_MOVE_SEGMENTS];
+    private final float[] moveAmount = new float[MAX_MOVE_SEGMENTS];
+    private int moveSegments = 0;
+
+    // Tile bounds, for culling
+    public final int minX, minY, maxX, maxY;
+
+    // Set when TransportNetwork dissolves this line into a rebuilt one
+    boolean dead = false;
+
+    // Scheduling state, as on Building: owning chunk (the one holding the
+    // last tile), whether the line wants ticks, and whether it's listed
+    final SimChunk chunk;
+    boolean awake = false;
+    boolean listed = false;
+
+    // Lines and miners blocked on this one; woken whenever it moves or
+    // hands off, since either may open a gap
+    final WaitList waiters = new WaitList();
+
+    int mark; // OfflineProgress scratch
+    int seen; // LineIndex query scratch
+
+    // As on Building: set when the items change, cleared by a save snapshot.
+    // A line that has gone to sleep stops setting it.
+    private boolean changedSinceSave = true;
+
+    TransportLine(BuildingManager world, Conveyor[] tiles) {
+        this.world = world;
+        this.tiles = tiles;
+        this.length = tiles.length;
+
+        int x0 = Integer.MAX_VALUE, y0 = Integer.MAX_VALUE;
+        int x1 = Integer.MIN_VALUE, y1 = Integer.MIN_VALUE;
+
+        for (int i = 0; i < tiles.length; i++) {
+            Conveyor c = tiles[i];
+            c.line = this;
+            c.lineIndex = i;
+
+            x0 = Math.min(x0, c.x);
+            y0 = Math.min(y0, c.y);
+            x1 = Math.max(x1, c.x);
+            y1 = Math.max(y1, c.y);
+        }
+
+        minX = x0;
+        minY = y0;
+        maxX = x1;
+        maxY = y1;
+
+        Conveyor last = tiles[length - 1];
+        chunk = world.chunkAt(last.x, last.y);
+    }
+
+    void update(float delta) {
+        moveSegments = 0;
+        if (count == 0) {
+            awake = false; // until something is inserted
+            return;
+        }
+
+        float distance = (delta / Conveyor.MOVE_TIME) * world.getUpgrades().beltSpeedMultiplier();
+        advance(distance);
+        changedSinceSave = true;
+
+        // A hand-off into another chunk has to wait for the serial phase
+        if (gaps[head] <= 0f && !chunk.canTouch(handOffChunk())) {
+            chunk.defer(this);
+            return;
+        }
+
+        finishTick();
+    }
+
+    /** Hand-off and sleep decision for this tick, once it's safe to touch the target. */
+    void finishTick() {
+        boolean blocked = gaps[head] <= 0f && !tryHandOff();
+
+        if (moveSegments > 0 || !blocked) {
+            waiters.wakeAll(chunk);
+        } else {
+            // Backed up all the way to the end; tryHandOff() parked us on
+            // whatever is in the way
+            awake = false;
+        }
+    }
+
+    private void advance(float distance) {
+        float remaining = distance;
+
+        for (int i = 0; i < count && remaining > 0f; i++) {
+            int at = (head + i) & mask;
+
+            // The front item can run right up to the end; the rest stop at SPACING
+            float slack = gaps[at] - (i == 0 ? 0f : SPACING);
+            if (slack <= 0f) continue;
+
+            float step = Math.min(slack, remaining);
+            gaps[at] -= step;
+            remaining -= step;
+            recordMove(i, step);
+        }
+    }
+
+    private void recordMove(int fromIndex, float amount) {
+        if (moveSegments < MAX_MOVE_SEGMENTS) {
+            moveStart[moveSegments] = fromIndex;
+            moveAmount[moveSegments] = amount;
+            moveSegments++;
+        } else {
+            moveAmount[MAX_MOVE_SEGMENTS - 1] += amount;
+        }
+    }
+
+    Building handOffTarget() {
+        Conveyor last = tiles[length - 1];
+        return world.getAt(last.x + last.direction.dx, last.y + last.direction.dy);
+    }
+
+    private SimChunk handOffChunk() {
+        Building b = handOffTarget();
+        if (b instanceof Conveyor next) return next.line.chunk;
+        if (b instanceof Core core) return core.chunk;
+        return chunk; // nothing to hand off to
+    }
+
+    private boolean tryHandOff() {
+        Building b = handOffTarget();
+
+        ItemType front = ItemType.fromOrdinal(types[head]);
+        boolean accepted = false;
+
+        // Into another line (a side feed, or the start of the next line)
+        if (b instanceof Conveyor next) {
+            accepted = next.line.tryInsert(next.lineIndex, front);
+            if (!accepted) next.line.waiters.add(this);
+        }
+
+        // Into the core, unless it's at its storage cap for this resource
+        if (b instanceof Core core) {
+            accepted = core.acceptItem(front);
+            if (!accepted) core.waiters.add(this);
+        }
+
+        // Otherwise the front item just waits at the end of the line (until
+        // something is placed there, which rebuilds or wakes this line)
+        if (accepted) removeFront();
+        return accepted;
+    }
+
+    private void removeFront() {
+        float frontGap = gaps[head];
+
+        head = (head + 1) & mask;
+        count--;
+
+        if (count > 0) gaps[head] += frontGap;
+
+        for (int k = 0; k < moveSegments; k++) {
+            moveStart[k] = Math.max(0, moveStart[k] - 1);
+        }
+    }
+
+    /** Whether an item entering at the start of tile {@code index} would keep SPACING to both neighbours. */
+    boolean canInsert(int index) {
+        return findInsertSlot(length - index) >= 0;
+    }
+
+    /** Inserts at the start of tile {@code index} if there's room. */
+    boolean tryInsert(int index, ItemType type) {
+        float entry = length - index;
+        int slot = findInsertSlot(entry);
+        if (slot < 0) return false;
+
+        insertAt(slot, entry, type);
+        chunk.wake(this);
+        return true;
+    }
+
+    /**
+     * Returns the array index a new item at distance {@code entry} from the end
+     * would take, or -1 if it would land within SPACING of another item.
+     */
+    private int findInsertSlot(float entry) {
+        float ahead = 0f; // distance from the end of the item in front of the slot
+        float d = 0f;
+
+        for (int i = 0; i < count; i++) {
+            d += gaps[(head + i) & mask];
+            if (d > entry) {
+                boolean roomBehind = d - entry >= SPACING;
+                boolean roomAhead = i == 0 || entry - ahead >= SPACING;
+                return roomBehind && roomAhead ? i : -1;
+            }
+            ahead = d;
+        }
+
+        return count == 0 || entry - ahead >= SPACING ? count : -1;
+    }
+
+    private void insertAt(int slot, float entry, ItemType type) {
+        ensureCapacity(count + 1);
+
+        float ahead = 0f;
+        for (int i = 0; i < slot; i++) ahead += gaps[(head + i) & mask];
+
+        // Open the slot by shifting whichever side of it is shorter. The
+        // common case, feeding onto the back of the line, shifts nothing.
+        if (slot < count - slot) {
+            head = (head - 1) & mask;
+            for (int i = 0; i < slot; i++) move(i + 1, i);
+        } else {
+            for (int i = count; i > slot; i--) move(i - 1, i);
+        }
+        count++;
+
+        changedSinceSave = true;
+
+        int at = (head + slot) & mask;
+        types[at] = (byte) type.ordinal();
+        gaps[at] = entry - ahead;
+        if (slot + 1 < count) gaps[(head + slot + 1) & mask] -= gaps[at];
+
+        for (int k = 0; k < moveSegments; k++) {
+            if (moveStart[k] > slot) moveStart[k]++;
+        }
+    }
+
+    private void move(int from, int to) {
+        int f = (head + from) & mask;
+        int t = (head + to) & mask;
+        types[t] = types[f];
+        gaps[t] = gaps[f];
+    }
+
+    private void ensureCapacity(int needed) {
+        if (needed <= types.length) return;
+
+        int size = types.length * 2;
+        while (size < needed) size *= 2;
+
+        byte[] newTypes = new byte[size];
+        float[] newGaps = new float[size];
+        for (int i = 0; i < count; i++) {
+            int at = (head + i) & mask;
+            newTypes[i] = types[at];
+            newGaps[i] = gaps[at];
+        }
+
+        types = newTypes;
+        gaps = newGaps;
+        mask = size - 1;
+        head = 0;
+    }
+
+    // --- Rebuilding (used by TransportNetwork when lines split or merge) ---
+
+    // A carried gap is trusted if the positions agree with it to within this
+    // (tiles). Positions are floats relative to a tile, so they can't give
+    // back the exact gap themselves; within this it's rounding, past it the
+    // item ahead isn't the one the gap was measured to.
+    static final float RESTORE_GAP_TOLERANCE = 1e-3f;
+
+    // Carried gaps of restored items, indexed like gaps; only non-null
+    // between restoreItem() and settleRestored()
+    private float[] restoredGaps;
+
+    /**
+     * Appends an item at {@code position} tiles from the start of a freshly
+     * built line; call settleRestored() once done. {@code gap} is what the
+     * item's gap was where it came from, or NaN if that isn't known.
+     */
+    void restoreItem(ItemType type, float position, float gap) {
+        ensureCapacity(count + 1);
+        if (restoredGaps == null || restoredGaps.length < gaps.length) {
+            float[] grown = new float[gaps.length];
+            if (restoredGaps != null) System.arraycopy(restoredGaps, 0, grown, 0, count);
+            restoredGaps = grown;
+        }
+        types[count] = (byte) type.ordinal();
+        gaps[count] = position; // holds raw positions until settleRestored()
+        restoredGaps[count] = gap;
+        count++;
+    }
+
+    /**
+     * Sorts restored items front to back and turns their positions into gaps.
+     * Where an item's carried gap matches its position it's kept as is, so
+     * items come back exactly where they were rather than a rounding off.
+     */
+    void settleRestored() {
+        if (restoredGaps == null) return;
+
+        // A new line starts with head = 0 and has only been appended to, so
+        // the buffer is contiguous here. Insertion sort: items mostly arrive
+        // in order already.
+        for (int i = 1; i < count; i++) {
+            byte type = types[i];
+            float pos = gaps[i];
+            float gap = restoredGaps[i];
+            int j = i - 1;
+            while (j >= 0 && gaps[j] < pos) {
+                types[j + 1] = types[j];
+                gaps[j + 1] = gaps[j];
+                restoredGaps[j + 1] = restoredGaps[j];
+                j--;
+            }
+            types[j + 1] = type;
+            gaps[j + 1] = pos;
+            restoredGaps[j + 1] = gap;
+        }
+
+        float ahead = 0f;
+        for (int i = 0; i < count; i++) {
+            float d = Math.max(ahead, length - Math.min(gaps[i], length));
+            float gap = restoredGaps[i];
+            gaps[i] = Math.abs(gap - (d - ahead)) <= RESTORE_GAP_TOLERANCE ? gap : d - ahead;
+            ahead += gaps[i];
+        }
+        restoredGaps = null;
+    }
+
+    // --- Read access for rendering and rebuilding ---
+
+    public int getLength() {
+        return length;
+    }
+
+    public Conveyor getConveyor(int index) {
+        return tiles[index];
+    }
+
+    public int getItemCount() {
+        return count;
+    }
+
+    public ItemType getItemType(int i) {
+        return ItemType.fromOrdinal(types[(head + i) & mask]);
+    }
+
+    /** Gap in tiles from item i to the item in front of it (or the end of the line, for i = 0). */
+    public float getGap(int i) {
+        return gaps[(head + i) & mask];
+    }
+
+    /**
+     * Copies the item types and gaps, front to back as getItemType/getGap
+     * number them, into the arrays from offset on. For snapshots: two array
+     * copies at most, however many items there are.
+     */
+    public void copyItems(byte[] typesOut, float[] gapsOut, int offset) {
+        int first = Math.min(count, mask + 1 - head);
+        System.arraycopy(types, head, typesOut, offset, first);
+        System.arraycopy(gaps, head, gapsOut, offset, first);
+        System.arraycopy(types, 0, typesOut, offset + first, count - first);
+        System.arraycopy(gaps, 0, gapsOut, offset + first, count - first);
+    }
+
+    /** Whether the items changed since the last save snapshot asked; clears the flag. */
+    public boolean takeChangedSinceSave() {
+        boolean changed = changedSinceSave;
+        changedSinceSave = false;
+        return changed;
+    }
+
+    /** How far item i moved during the last tick. */
+    public float getLastMove(int i) {
+        float moved = 0f;
+        for (int k = 0; k < moveSegments; k++) {
+            if (i >= moveStart[k]) moved += moveAmount[k];
+        }
+        return moved;
+    }
+}
@@ -0,0 +1,233 @@
+package dev.lmcginnisno1.ironfall.buildings;
+
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.ByteArray;
+import com.badlogic.gdx.utils.FloatArray;
+import dev.lmcginnisno1.ironfall.items.ItemType;
+
+import java.util.ArrayList;
+
+/**
+ * Owns every TransportLine and keeps them in step with the conveyors on the
+ * map. A line is a chain of conveyors where each one is the "primary input"
+ * of the next: the belt directly behind it pointing in, or failing that the
+ * only belt feeding it from the side (a corner). Anything else pointing into
+ * a conveyor is a side feed and inserts items mid-line.
+ *
+ * Placing or removing a conveyor can only change primary inputs at that tile
+ * and its four neighbours, so only the lines touching those are dissolved and
+ * rebuilt, carrying their items across.
+ *
+ * Lines are ticked by their SimChunk, and only while awake; see
+ * TransportLine for when they sleep.
+ */
+class TransportNetwork {
+
+    private static final Conveyor.Direction[] DIRECTIONS = Conveyor.Direction.values();
+
+    private final BuildingManager world;
+    private final ArrayList<TransportLine> lines = new ArrayList<>();
+    private final LineIndex index;
+
+    // Scratch state for rebuildAround(), kept between calls
+    private final ArrayList<Conveyor> affected = new ArrayList<>();
+    private final ArrayList<Conveyor> chain = new ArrayList<>();
+    private final ArrayList<TransportLine> rebuilt = new ArrayList<>();
+    private final ByteArray carriedTypes = new ByteArray();
+    private final Array<Conveyor> carriedTiles = new Array<>();
+    private final FloatArray carriedProgress = new FloatArray();
+    private final FloatArray carriedGaps = new FloatArray();
+    private int stamp = 0;
+
+    TransportNetwork(BuildingManager world, int width) {
+        this.world = world;
+        this.index = new LineIndex(width);
+    }
+
+    ArrayList<TransportLine> getLines() {
+        return lines;
+    }
+
+    LineIndex getIndex() {
+        return index;
+    }
+
+    /** Call after c has been added to the occupancy grid. */
+    void conveyorPlaced(Conveyor c) {
+        rebuildAround(c, null);
+    }
+
+    /** Call after c has been taken out of the occupancy grid; its items are lost. */
+    void conveyorRemoved(Conveyor c) {
+        rebuildAround(c, c);
+    }
+
+    private void rebuildAround(Conveyor changed, Conveyor removed) {
+        affected.clear();
+        carriedTypes.clear();
+        carriedTiles.clear();
+        carriedProgress.clear();
+        carriedGaps.clear();
+        stamp++;
+
+        if (removed == null) {
+            collect(changed);
+        } else {
+            dissolve(changed.line, removed);
+        }
+
+        for (Conveyor.Direction d : DIRECTIONS) {
+            if (world.getAt(changed.x + d.dx, changed.y + d.dy) instanceof Conveyor n) {
+                dissolve(n.line, removed);
+            }
+        }
+
+        // A primary input can also switch to a belt that isn't next to the
+        // change (e.g. removing the belt behind a corner makes the side feeder
+        // primary), so keep pulling in lines until every chain is closed.
+        for (int i = 0; i < affected.size(); i++) {
+            Conveyor c = affected.get(i);
+
+            Conveyor in = primaryInput(c);
+            if (in != null && in.mark != stamp) dissolve(in.line, removed);
+
+            Conveyor out = output(c);
+            if (out != null && out.mark != stamp && primaryInput(out) == c) dissolve(out.line, removed);
+        }
+
+        int lineCount = 0;
+        for (int i = 0; i < lines.size(); i++) {
+            TransportLine l = lines.get(i);
+            if (!l.dead) lines.set(lineCount++, l);
+        }
+        while (lines.size() > lineCount) lines.remove(lines.size() - 1);
+
+        buildAffected();
+    }
+
+    /**
+     * Builds every line from scratch in one pass, for loading a save: placing
+     * conveyors one by one would rebuild the growing line each time. Items
+     * are given as in dissolve(): the conveyor holding each one, how far
+     * into that tile it is and its gap to the item ahead (NaN if unknown).
+     */
+    void restoreAll(ArrayList<Conveyor> conveyors, Array<Conveyor> itemTiles, ByteArray itemTypes, FloatArray itemProgress, FloatArray itemGaps) {
+        affected.clear();
+        affected.addAll(conveyors);
+        lines.clear();
+        index.clear();
+
+        carriedTiles.clear();
+        carriedTiles.addAll(itemTiles);
+        carriedTypes.clear();
+        carriedTypes.addAll(itemTypes);
+        carriedProgress.clear();
+        carriedProgress.addAll(itemProgress);
+        carriedGaps.clear();
+        carriedGaps.addAll(itemGaps);
+
+        buildAffected();
+    }
+
+    private void buildAffected() {
+        // Chains start wherever there's no primary input; whatever is left
+        // unvisited after that is a closed loop.
+        stamp++;
+        rebuilt.clear();
+        for (int i = 0; i < affected.size(); i++) {
+            Conveyor c = affected.get(i);
+            if (c.mark != stamp && primaryInput(c) == null) buildLine(c);
+        }
+        for (int i = 0; i < affected.size(); i++) {
+            Conveyor c = affected.get(i);
+            if (c.mark != stamp) buildLine(c);
+        }
+
+        for (int i = 0; i < carriedTypes.size; i++) {
+            Conveyor c = carriedTiles.get(i);
+            c.line.restoreItem(ItemType.fromOrdinal(carriedTypes.get(i)), c.lineIndex + carriedProgress.get(i), carriedGaps.get(i));
+        }
+        for (TransportLine l : rebuilt) l.settleRestored();
+
+        carriedTiles.clear();
+    }
+
+    private void collect(Conveyor c) {
+        c.mark = stamp;
+        affected.add(c);
+    }
+
+    /** Marks a line for rebuilding, keeping its conveyors and items (except those on removed). */
+    private void dissolve(TransportLine line, Conveyor removed) {
+        if (line == null || line.dead) return;
+        line.dead = true;
+        index.remove(line);
+
+        // Anything parked on the old line re-checks against the new ones
+        line.waiters.wakeAll(line.chunk);
+
+        float d = 0f;
+        for (int i = 0; i < line.getItemCount(); i++) {
+            d += line.getGap(i);
+            float pos = line.getLength() - d;
+            int index = Math.min((int) pos, line.getLength() - 1);
+
+            Conveyor c = line.getConveyor(index);
+            if (c == removed) continue;
+
+            carriedTypes.add((byte) line.getItemType(i).ordinal());
+            carriedTiles.add(c);
+            carriedProgress.add(pos - index);
+            carriedGaps.add(line.getGap(i));
+        }
+
+        for (int i = 0; i < line.getLength(); i++) {
+            Conveyor c = line.getConveyor(i);
+            if (c != removed && c.mark != stamp) collect(c);
+        }
+    }
+
+    private void buildLine(Conveyor start) {
+        chain.clear();
+
+        Conveyor c = start;
+        while (c != null && c.mark != stamp) {
+            c.mark = stamp;
+            chain.add(c);
+
+            Conveyor next = output(c);
+            c = next != null && primaryInput(next) == c ? next : null;
+        }
+
+        TransportLine line = new TransportLine(world, chain.toArray(new Conveyor[0]));
+        lines.add(line);
+        index.add(line);
+        rebuilt.add(line);
+        line.chunk.wake(line);
+    }
+
+    /** The conveyor c drops items onto, if any. */
+    private Conveyor output(Conveyor c) {
+        return world.getAt(c.x + c.direction.dx, c.y + c.direction.dy) instanceof Conveyor next ? next : null;
+    }
+
+    private Conveyor primaryInput(Conveyor c) {
+        Conveyor.Direction dir = c.direction;
+
+        if (world.getAt(c.x - dir.dx, c.y - dir.dy) instanceof Conveyor behind && output(behind) == c) {
+            return behind;
+        }
+
+        // No belt behind: a single side feeder makes this a corner, two make it a merge
+        Conveyor only = null;
+        for (Conveyor.Direction d : DIRECTIONS) {
+            if (d == dir || (d.dx == -dir.dx && d.dy == -dir.dy)) continue;
+
+            if (world.getAt(c.x + d.dx, c.y + d.dy) instanceof Conveyor side && output(side) == c) {
+                if (only != null) return null;
+                only = side;
+            }
+        }
+        return only;
+    }
+}
@@ -0,0 +1,37 @@
+package dev.lmcginnisno1.ironfall.buildings;
+
+import java.util.ArrayList;
+
+/**
+ * Sleepers parked on something that is full: a line they can't hand off to,
+ * or the Core at its storage cap. Whoever owns the list wakes everything on
+ * it when space may have freed up. Wake-ups can be spurious (a miner parks
+ * on every belt next to it, and any of them may wake it), which just costs
+ * the sleeper one more update before it parks again.
+ */
+class WaitList {
+
+    private final ArrayList<Building> buildings = new ArrayList<>();
+    private final ArrayList<TransportLine> lines = new ArrayList<>();
+
+    // Lists stay tiny (a few neighbours), so contains() is cheap enough
+    void add(Building b) {
+        if (!buildings.contains(b)) buildings.add(b);
+    }
+
+    void add(TransportLine line) {
+        if (!lines.contains(line)) lines.add(line);
+    }
+
+    /** Wakes everything parked here, on behalf of code running for {@code from}. */
+    void wakeAll(SimChunk from) {
+        if (!buildings.isEmpty()) {
+            for (int i = 0; i < buildings.size(); i++) from.wake(buildings.get(i));
+            buildings.clear();
+        }
+        if (!lines.isEmpty()) {
+            for (int i = 0; i < lines.size(); i++) from.wake(lines.get(i));
+            lines.clear();
+        }
+    }
+}
@@ -0,0 +1,404 @@
+package dev.lmcginnisno1.ironfall.game;
+
+import dev.lmcginnisno1.ironfall.buildings.BasicMiner;
+import dev.lmcginnisno1.ironfall.buildings.Building;
+import dev.lmcginnisno1.ironfall.buildings.Conveyor;
+import dev.lmcginnisno1.ironfall.buildings.Core;
+import dev.lmcginnisno1.ironfall.buildings.OfflineProgress;
+import dev.lmcginnisno1.ironfall.items.ItemType;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * Something the player did to the game: the only way input changes the
+ * simulation. Each one goes through Simulation.execute(), which stamps it
+ * with the tick it happened before and hands it to the CommandJournal if
+ * there is one, so a session can be re-run exactly from its starting save.
+ *
+ * A command names its targets by tile position and plain values rather than
+ * holding on to objects, and checks everything it depends on (space, credits,
+ * ore, stock) when applied, so applying it to the same state always does the
+ * same thing, in the game or in a replay.
+ */
+public abstract class Command {
+
+    private static final ItemType[] ITEM_TYPES = ItemType.values();
+    private static final Conveyor.Direction[] DIRECTIONS = Conveyor.Direction.values();
+
+    // Type bytes in the journal; don't renumber
+    private static final byte PLACE = 0;
+    private static final byte PLACE_BELT = 1;
+    private static final byte REMOVE = 2;
+    private static final byte SET_SALE = 3;
+    private static final byte SELL = 4;
+    private static final byte SELL_ALL = 5;
+    private static final byte UPGRADE = 6;
+    private static final byte CATCH_UP = 7;
+
+    // Set by Simulation.execute()
+    long tick;
+
+    /** The tick this was applied before, i.e. how many ticks had completed. */
+    public long getTick() {
+        return tick;
+    }
+
+    /** Changes sim if the command is still valid there. Returns whether it did anything. */
+    abstract boolean apply(Simulation sim);
+
+    abstract byte type();
+
+    abstract void write(DataOutputStream out) throws IOException;
+
+    static Command read(byte type, DataInputStream in) throws IOException {
+        return switch (type) {
+            case PLACE -> new Place(in.readByte(), in.readInt(), in.readInt());
+            case PLACE_BELT -> {
+                int count = in.readInt();
+                int[] xs = new int[count], ys = new int[count];
+                Conveyor.Direction[] directions = new Conveyor.Direction[count];
+                for (int i = 0; i < count; i++) {
+                    xs[i] = in.readInt();
+                    ys[i] = in.readInt();
+                    directions[i] = DIRECTIONS[in.readByte()];
+                }
+                yield new PlaceBelt(xs, ys, directions);
+            }
+            case REMOVE -> new Remove(in.readInt(), in.readInt());
+            case SET_SALE -> new SetSale(in.readInt(), in.readInt(), ITEM_TYPES[in.readByte()], in.readFloat());
+            case SELL -> new Sell(in.readInt(), in.readInt());
+            case SELL_ALL -> new SellAll(in.readInt(), in.readInt());
+            case UPGRADE -> new Upgrade(in.readInt(), in.readInt(), Upgrade.Track.values()[in.readByte()]);
+            case CATCH_UP -> new CatchUp(in.readDouble());
+            default -> throw new IOException("Unknown command type " + type);
+        };
+    }
+
+    private static Core coreAt(Simulation sim, int x, int y) {
+        return sim.buildings.getAt(x, y) instanceof Core core ? core : null;
+    }
+
+    /** Buys a building from the build menu and puts it down at (x, y). */
+    public static final class Place extends Command {
+
+        private static final byte BASIC_MINER = 0;
+
+        private final byte kind;
+        private final int x, y;
+
+        /** prototype only says what to build; it isn't placed itself. */
+        public Place(Building prototype, int x, int y) {
+            this(kindOf(prototype), x, y);
+        }
+
+        private Place(byte kind, int x, int y) {
+            this.kind = kind;
+            this.x = x;
+            this.y = y;
+        }
+
+        private static byte kindOf(Building prototype) {
+            if (prototype instanceof BasicMiner) return BASIC_MINER;
+            throw new IllegalArgumentException("Can't place a " + prototype.getClass().getSimpleName());
+        }
+
+        @Override
+        boolean apply(Simulation sim) {
+            Building b = switch (kind) {
+                case BASIC_MINER -> {
+                    if (!BasicMiner.hasOre(sim.engine, x, y)) yield null;
+                    yield new BasicMiner(x, y, sim.engine);
+                }
+                default -> null;
+            };
+            if (b == null || sim.credits < b.cost || !sim.buildings.canPlace(x, y, b.width, b.height)) return false;
+
+            sim.credits -= b.cost;
+            sim.buildings.place(b);
+            return true;
+        }
+
+        @Override
+        byte type() {
+            return PLACE;
+        }
+
+        @Override
+        void write(DataOutputStream out) throws IOException {
+            out.writeByte(kind);
+            out.writeInt(x);
+            out.writeInt(y);
+        }
+    }
+
+    /**
+     * A dragged run of conveyors, bought as one: if the whole run can't be
+     * afforded none of it is placed, rather than leaving a partial belt that
+     * doesn't reach where intended.
+     */
+    public static final class PlaceBelt extends Command {
+
+        private final int[] xs, ys;
+        private final Conveyor.Direction[] directions;
+
+        public PlaceBelt(int[] xs, int[] ys, Conveyor.Direction[] directions) {
+            this.xs = xs;
+            this.ys = ys;
+            this.directions = directions;
+        }
+
+        @Override
+        boolean apply(Simulation sim) {
+            int totalCost = xs.length * Conveyor.COST;
+            if (sim.credits < totalCost) return false;
+
+            sim.credits -= totalCost;
+            for (int i = 0; i < xs.length; i++) {
+                sim.buildings.place(new Conveyor(xs[i], ys[i], directions[i]));
+            }
+            return true;
+        }
+
+        @Override
+        byte type() {
+            return PLACE_BELT;
+        }
+
+        @Override
+        void write(DataOutputStream out) throws IOException {
+            out.writeInt(xs.length);
+            for (int i = 0; i < xs.length; i++) {
+                out.writeInt(xs[i]);
+                out.writeInt(ys[i]);
+                out.writeByte(directions[i].ordinal());
+            }
+        }
+    }
+
+    /**
+     * Deletes the building covering (x, y). Full credit refund, no resources
+     * returned, per design — this exists purely so a bad placement can't
+     * strand credits/resources permanently, not as an economy lever.
+     */
+    public static final class Remove extends Command {
+
+        private final int x, y;
+
+        public Remove(int x, int y) {
+            this.x = x;
+            this.y = y;
+        }
+
+        @Override
+        boolean apply(Simulation sim) {
+            Building b = sim.buildings.getAt(x, y);
+            if (b == null || !sim.buildings.remove(b)) return false;
+
+            sim.credits += b.cost;
+            return true;
+        }
+
+        @Override
+        byte type() {
+            return REMOVE;
+        }
+
+        @Override
+        void write(DataOutputStream out) throws IOException {
+            out.writeInt(x);
+            out.writeInt(y);
+        }
+    }
+
+    /** Moves one of the Core at (x, y)'s sale sliders; see Core.setSalePercentage(). */
+    public static final class SetSale extends Command {
+
+        private final int x, y;
+        private final ItemType item;
+        private final float pct;
+
+        public SetSale(int x, int y, ItemType item, float pct) {
+            this.x = x;
+            this.y = y;
+            this.item = item;
+            this.pct = pct;
+        }
+
+        @Override
+        boolean apply(Simulation sim) {
+            Core core = coreAt(sim, x, y);
+            if (core == null) return false;
+
+            core.setSalePercentage(item, pct);
+            return true;
+        }
+
+        @Override
+        byte type() {
+            return SET_SALE;
+        }
+
+        @Override
+        void write(DataOutputStream out) throws IOException {
+            out.writeInt(x);
+            out.writeInt(y);
+            out.writeByte(item.ordinal());
+            out.writeFloat(pct);
+        }
+    }
+
+    /** Sells what the Core at (x, y)'s sliders are set to. */
+    public static final class Sell extends Command {
+
+        private final int x, y;
+
+        public Sell(int x, int y) {
+            this.x = x;
+            this.y = y;
+        }
+
+        @Override
+        boolean apply(Simulation sim) {
+            Core core = coreAt(sim, x, y);
+            if (core == null) return false;
+
+            sim.credits += core.sellSelectedItems();
+            return true;
+        }
+
+        @Override
+        byte type() {
+            return SELL;
+        }
+
+        @Override
+        void write(DataOutputStream out) throws IOException {
+            out.writeInt(x);
+            out.writeInt(y);
+        }
+    }
+
+    /** Sells everything stored in the Core at (x, y). */
+    public static final class SellAll extends Command {
+
+        private final int x, y;
+
+        public SellAll(int x, int y) {
+            this.x = x;
+            this.y = y;
+        }
+
+        @Override
+        boolean apply(Simulation sim) {
+            Core core = coreAt(sim, x, y);
+            if (core == null) return false;
+
+            sim.credits += core.sellAllItems();
+            return true;
+        }
+
+        @Override
+        byte type() {
+            return SELL_ALL;
+        }
+
+        @Override
+        void write(DataOutputStream out) throws IOException {
+            out.writeInt(x);
+            out.writeInt(y);
+        }
+    }
+
+    /** Buys the next level of an upgrade track with resources from the Core at (x, y). */
+    public static final class Upgrade extends Command {
+
+        public enum Track { MINER, BELT, STORAGE }
+
+        private final int x, y;
+        private final Track track;
+
+        public Upgrade(int x, int y, Track track) {
+            this.x = x;
+            this.y = y;
+            this.track = track;
+        }
+
+        @Override
+        boolean apply(Simulation sim) {
+            Core core = coreAt(sim, x, y);
+            if (core == null) return false;
+
+            Upgrades upgrades = sim.buildings.getUpgrades();
+            switch (track) {
+                case MINER -> {
+                    if (upgrades.isMinerMaxed()) return false;
+                    if (!core.trySpendResource(upgrades.minerUpgradeResource(), upgrades.minerUpgradeCost())) return false;
+                    upgrades.minerSpeedLevel++;
+                }
+                case BELT -> {
+                    if (upgrades.isBeltMaxed()) return false;
+                    if (!core.trySpendResource(upgrades.beltUpgradeResource(), upgrades.beltUpgradeCost())) return false;
+                    upgrades.beltSpeedLevel++;
+                }
+                case STORAGE -> {
+                    if (upgrades.isStorageMaxed()) return false;
+                    if (!core.trySpendResource(upgrades.storageUpgradeResource(), upgrades.storageUpgradeCost())) return false;
+                    upgrades.storageCapacityLevel++;
+                    // Belts and miners stalled on a full Core can move again
+                    sim.buildings.upgradesChanged();
+                }
+            }
+            return true;
+        }
+
+        @Override
+        byte type() {
+            return UPGRADE;
+        }
+
+        @Override
+        void write(DataOutputStream out) throws IOException {
+            out.writeInt(x);
+            out.writeInt(y);
+            out.writeByte(track.ordinal());
+        }
+    }
+
+    /**
+     * Credits the Cores with what the factory would have delivered while the
+     * game was closed; see OfflineProgress. Not something the player does,
+     * but it changes the game like one, so it's journaled like one.
+     */
+    public static final class CatchUp extends Command {
+
+        private final double seconds;
+        private int[] delivered;
+
+        public CatchUp(double seconds) {
+            this.seconds = seconds;
+        }
+
+        @Override
+        boolean apply(Simulation sim) {
+            delivered = OfflineProgress.catchUp(sim.buildings, seconds);
+            return true;
+        }
+
+        /** How many of each resource (by ordinal) it delivered, once applied. */
+        public int[] getDelivered() {
+            return delivered;
+        }
+
+        @Override
+        byte type() {
+            return CATCH_UP;
+        }
+
+        @Override
+        void write(DataOutputStream out) throws IOException {
+            out.writeDouble(seconds);
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package dev.lmcginnisno1.ironfall.game;
+
+import com.badlogic.gdx.Gdx;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+/**
+ * An append-only record of one play session: every Command the Simulation
+ * executed, with the tick it was executed before, and the state hash every
+ * HASH_INTERVAL ticks. Together with the save the session started from
+ * (kept next to the journal, see startFile()) that's enough to run the
+ * session again, exactly, with Replay; the hashes say whether it did.
+ *
+ * File layout, all big-endian:
+ *
+ *   header    MAGIC 'IRJN', VERSION
+ *   entries   one of
+ *               ENTRY_COMMAND  tick (long), command type (byte), its fields
+ *               ENTRY_HASH     tick (long), Simulation.stateHash() (long)
+ *
+ * Entries are in the order they happened, so a tick's hash comes before the
+ * commands executed after it. Every entry is flushed as it's written; a
+ * crash loses at most the one being written, and a reader stops at it.
+ *
+ * Hashing costs a pass over the factory, so it's once per simulated second
+ * rather than every tick: a replay that goes wrong is caught within a second
+ * of where it went wrong.
+ */
+public class CommandJournal {
+
+    static final int MAGIC = 0x49524A4E;   // "IRJN"
+    static final int VERSION = 1;
+
+    static final byte ENTRY_COMMAND = 0;
+    static final byte ENTRY_HASH = 1;
+
+    public static final int HASH_INTERVAL = SimulationClock.TICKS_PER_SECOND;
+
+    private final File file;
+    private DataOutputStream out;
+    private long lastHashTick = -1;
+
+    /** Starts a new journal at file, replacing any old one. */
+    public CommandJournal(File file) throws IOException {
+        this.file = file;
+        out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.flush();
+    }
+
+    /** Where the save a journal starts from is kept. */
+    public static File startFile(File journal) {
+        return new File(journal.getPath() + ".start");
+    }
+
+    void record(Command command) {
+        if (out == null) return;
+        try {
+            out.writeByte(ENTRY_COMMAND);
+            out.writeLong(command.tick);
+            out.writeByte(command.type());
+            command.write(out);
+            out.flush();
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    void tickCompleted(Simulation sim) {
+        if (sim.clock.getTick() % HASH_INTERVAL == 0) recordHash(sim);
+    }
+
+    private void recordHash(Simulation sim) {
+        long tick = sim.clock.getTick();
+        if (out == null || tick == lastHashTick) return;
+        try {
+            out.writeByte(ENTRY_HASH);
+            out.writeLong(tick);
+            out.writeLong(sim.stateHash());
+            out.flush();
+            lastHashTick = tick;
+        } catch (IOException e) {
+            fail(e);
+        }
+    }
+
+    // A journal is a debugging aid; losing it mustn't take the game down
+    private void fail(IOException e) {
+        Gdx.app.error("Journal", "Couldn't write " + file + ", no longer recording", e);
+        close();
+    }
+
+    /** Ends the journal with the hash as of now, so a replay checks all the way to the end. */
+    public void close(Simulation sim) {
+        recordHash(sim);
+        close();
+    }
+
+    private void close() {
+        if (out == null) return;
+        try {
+            out.close();
+        } catch (IOException e) {
+            // Everything written was already flushed
+        }
+        out = null;
+    }
+
+    /** Reads a journal back an entry at a time. For Replay. */
+    static final class Reader implements AutoCloseable {
+
+        private final DataInputStream in;
+
+        // The entry read last
+        byte kind;
+        long tick;
+        Command command;
+        long hash;
+
+        Reader(File file) throws IOException {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            if (in.readInt() != MAGIC) throw new IOException(file + " isn't a command journal");
+            int version = in.readInt();
+            if (version != VERSION) throw new IOException("Unsupported journal version " + version);
+        }
+
+        /** Reads the next entry. False at the end, including a last entry cut short by a crash. */
+        boolean next() throws IOException {
+            try {
+                kind = in.readByte();
+                tick = in.readLong();
+                switch (kind) {
+                    case ENTRY_COMMAND -> {
+                        command = Command.read(in.readByte(), in);
+                        command.tick = tick;
+                    }
+                    case ENTRY_HASH -> hash = in.readLong();
+                    default -> throw new IOException("Unknown journal entry " + kind);
+                }
+                return true;
+            } catch (EOFException e) {
+                return false;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
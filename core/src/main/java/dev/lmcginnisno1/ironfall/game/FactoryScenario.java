@@ -0,0 +1,132 @@
+package dev.lmcginnisno1.ironfall.game;
+
+import dev.lmcginnisno1.ironfall.buildings.BasicMiner;
+import dev.lmcginnisno1.ironfall.buildings.BuildingManager;
+import dev.lmcginnisno1.ironfall.buildings.Conveyor;
+import dev.lmcginnisno1.ironfall.buildings.Core;
+import dev.lmcginnisno1.ironfall.items.ItemType;
+import dev.lmcginnisno1.ironfall.tiles.TileEngine;
+import dev.lmcginnisno1.ironfall.tiles.TileType;
+
+import java.util.ArrayList;
+
+/**
+ * A scripted factory made of identical cells stacked vertically. Each cell is
+ * a Core with two belt rows running right into its left side, one fed by
+ * miners sitting below it and one by miners above:
+ *
+ *   y+4..5   MM  MM  MM
+ *   y+3      >>>>>>>>>>>CCCC
+ *   y+2      >>>>>>>>>>>CCCC
+ *   y+0..1   MM  MM  MM
+ *
+ * Miners are spread evenly along each row, so the same belt total can be run
+ * saturated (a miner on every slot) or starved (one per row). Rows cycle
+ * through coal, iron and copper.
+ *
+ * The headless runner, SimulationTickBenchmark and the core tests all build
+ * this same layout, so what the runner measures is what the tests check.
+ */
+public class FactoryScenario {
+
+    public static final int CELL_HEIGHT = 6;
+
+    private static final TileType[] ORES = { TileType.COAL, TileType.IRON, TileType.COPPER };
+
+    public final TileEngine engine;
+    public final BuildingManager buildings;
+    public final ArrayList<Core> cores = new ArrayList<>();
+
+    public final int rows;
+    public final int beltTiles;
+    public final int miners;
+
+    /**
+     * @param rows        belt rows to build (two per Core)
+     * @param rowLength   tiles per belt row
+     * @param minersPerRow miners along each row, at most rowLength / 2
+     */
+    public FactoryScenario(int rows, int rowLength, int minersPerRow) {
+        this.rows = rows;
+
+        int cells = (rows + 1) / 2;
+        int width = rowLength + 6;
+        int height = cells * CELL_HEIGHT + 2;
+
+        engine = new TileEngine(width, height);
+        buildings = new BuildingManager(width, height);
+
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                engine.setTile(x, y, TileType.DIRT.id);
+            }
+        }
+
+        int perRow = Math.max(0, Math.min(minersPerRow, rowLength / 2));
+        int belts = 0;
+        int placed = 0;
+
+        for (int cell = 0; cell < cells; cell++) {
+            int y0 = 1 + cell * CELL_HEIGHT;
+            int coreX = 1 + rowLength;
+
+            buildings.placeCore(coreX, y0 + 2);
+            cores.add((Core) buildings.getAt(coreX, y0 + 2));
+
+            for (int r = 0; r < 2 && cell * 2 + r < rows; r++) {
+                int beltY = y0 + 2 + r;
+                int minerY = r == 0 ? y0 : y0 + 4;
+                TileType ore = ORES[(cell * 2 + r) % ORES.length];
+
+                for (int x = 1; x < coreX; x++) {
+                    buildings.place(new Conveyor(x, beltY, Conveyor.Direction.RIGHT));
+                    belts++;
+                }
+
+                // Spread miners from the far (upstream) end of the row
+                int spacing = perRow > 0 ? rowLength / perRow : 0;
+                for (int i = 0; i < perRow; i++) {
+                    placeMiner(engine, buildings, 1 + i * spacing, minerY, ore);
+                    placed++;
+                }
+            }
+        }
+
+        beltTiles = belts;
+        miners = placed;
+    }
+
+    /** A miner at (x, y) over a full 2x2 of ore: 1 item/sec before upgrades. */
+    public static void placeMiner(TileEngine engine, BuildingManager buildings, int x, int y, TileType ore) {
+        placeOre(engine, x, y, ore);
+        buildings.place(new BasicMiner(x, y, engine));
+    }
+
+    /** Paints the 2x2 of tiles at (x, y) with ore. */
+    public static void placeOre(TileEngine engine, int x, int y, TileType ore) {
+        for (int dy = 0; dy < 2; dy++) {
+            for (int dx = 0; dx < 2; dx++) {
+                engine.setTile(x + dx, y + dy, ore.id);
+            }
+        }
+    }
+
+    /** Empties every Core, returning how many items they held. */
+    public long drainCores() {
+        long total = 0;
+        for (Core core : cores) {
+            for (ItemType type : ItemType.values()) total += core.getAmount(type);
+            core.sellAllItems();
+        }
+        return total;
+    }
+
+    /** Items currently sitting in Cores. */
+    public long storedItems() {
+        long total = 0;
+        for (Core core : cores) {
+            for (ItemType type : ItemType.values()) total += core.getAmount(type);
+        }
+        return total;
+    }
+}
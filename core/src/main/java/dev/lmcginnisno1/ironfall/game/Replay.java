@@ -0,0 +1,74 @@
+package dev.lmcginnisno1.ironfall.game;
+
+import dev.lmcginnisno1.ironfall.save.SaveFile;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Runs a recorded session again, as fast as it will go: loads the save the
+ * CommandJournal started from, ticks up to each entry, executes the
+ * commands at the ticks they were executed before and compares the state
+ * hash wherever one was recorded. No window or GL needed, so it runs in the
+ * headless runner: a session where the game went slow is a benchmark, and a
+ * session where it went wrong is a reproduction.
+ *
+ * Stops at the first divergence: a hash that doesn't match, or a command
+ * that the replayed state refuses when the original accepted it.
+ */
+public class Replay {
+
+    public long startTick;
+    public long endTick;
+    public int commands;
+    public int hashesChecked;
+
+    // -1 unless the replay diverged
+    public long divergedAt = -1;
+    public String divergence;
+
+    public long loadNanos;
+    public long runNanos;
+
+    public static Replay run(File journal, int threads) throws IOException {
+        Replay replay = new Replay();
+
+        long start = System.nanoTime();
+        Simulation sim = new Simulation(SaveFile.read(CommandJournal.startFile(journal)));
+        sim.buildings.setSimulationThreads(threads);
+        replay.startTick = sim.clock.getTick();
+        replay.loadNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        try (CommandJournal.Reader reader = new CommandJournal.Reader(journal)) {
+            while (reader.next()) {
+                while (sim.clock.getTick() < reader.tick) sim.tick();
+
+                if (reader.kind == CommandJournal.ENTRY_HASH) {
+                    replay.hashesChecked++;
+                    long hash = sim.stateHash();
+                    if (hash != reader.hash) {
+                        replay.diverge(reader.tick, String.format("state hash %016x, recorded %016x", hash, reader.hash));
+                        break;
+                    }
+                } else {
+                    replay.commands++;
+                    if (!sim.execute(reader.command)) {
+                        replay.diverge(reader.tick, reader.command.getClass().getSimpleName() + " was refused");
+                        break;
+                    }
+                }
+            }
+        } finally {
+            replay.runNanos = System.nanoTime() - start;
+            replay.endTick = sim.clock.getTick();
+            sim.buildings.dispose();
+        }
+        return replay;
+    }
+
+    private void diverge(long tick, String why) {
+        divergedAt = tick;
+        divergence = why;
+    }
+}
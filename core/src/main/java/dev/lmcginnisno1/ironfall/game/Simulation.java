@@ -0,0 +1,147 @@
+package dev.lmcginnisno1.ironfall.game;
+
+import dev.lmcginnisno1.ironfall.buildings.BasicMiner;
+import dev.lmcginnisno1.ironfall.buildings.Building;
+import dev.lmcginnisno1.ironfall.buildings.BuildingManager;
+import dev.lmcginnisno1.ironfall.buildings.Core;
+import dev.lmcginnisno1.ironfall.buildings.TransportLine;
+import dev.lmcginnisno1.ironfall.items.ItemType;
+import dev.lmcginnisno1.ironfall.save.SaveGame;
+import dev.lmcginnisno1.ironfall.tiles.TileEngine;
+
+import java.util.ArrayList;
+
+/**
+ * The game state that's simulated, as opposed to what's on screen: the map,
+ * the factory, the wallet and the tick count. Changed only by ticking and
+ * by executing Commands, both on the same thread, so the same starting
+ * state and the same commands at the same ticks always end up in the same
+ * state, which stateHash() can confirm.
+ */
+public class Simulation {
+
+    private static final ItemType[] ITEM_TYPES = ItemType.values();
+
+    public final TileEngine engine;
+    public final BuildingManager buildings;
+    public final SimulationClock clock = new SimulationClock();
+
+    // Terrain nobody edited is regenerated from this
+    public final long seed;
+
+    // Read freely; only Commands change it
+    public int credits;
+
+    private CommandJournal journal;
+
+    public Simulation(TileEngine engine, BuildingManager buildings, long seed, int credits, long tick) {
+        this.engine = engine;
+        this.buildings = buildings;
+        this.seed = seed;
+        this.credits = credits;
+        clock.setTick(tick);
+    }
+
+    /** Picks up where a save left off. */
+    public Simulation(SaveGame save) {
+        this(save.engine, save.buildings, save.seed, save.credits, save.tick);
+    }
+
+    /** Everything executed and ticked from now on is recorded to journal. */
+    public void setJournal(CommandJournal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * Applies command before the next tick. Returns false, changing nothing
+     * and recording nothing, if it no longer applies (can't afford it, the
+     * space was taken, ...).
+     */
+    public boolean execute(Command command) {
+        command.tick = clock.getTick();
+        if (!command.apply(this)) return false;
+
+        if (journal != null) journal.record(command);
+        return true;
+    }
+
+    /** Runs one fixed-length tick. */
+    public void tick() {
+        buildings.update(SimulationClock.TICK_SECONDS);
+        clock.tickCompleted();
+
+        if (journal != null) journal.tickCompleted(this);
+    }
+
+    /** The state as it is now, for saving. */
+    public SaveGame toSaveGame() {
+        return new SaveGame(engine, buildings, seed, credits, clock.getTick());
+    }
+
+    /**
+     * A fingerprint of everything a tick can change: the wallet, upgrade
+     * levels, every building's position and progress, Core stock and every
+     * belt item. Equal hashes at the same tick mean a replay is still on
+     * track. Terrain isn't included; nothing changes it during play.
+     *
+     * Buildings and lines are each hashed on their own and summed, so the
+     * order they're listed in doesn't count: a loaded save lists them chunk
+     * by chunk, not in the order they were built.
+     *
+     * One pass over the factory, so about as expensive as a SaveSnapshot.
+     */
+    public long stateHash() {
+        Upgrades upgrades = buildings.getUpgrades();
+
+        long h = mix(0, clock.getTick());
+        h = mix(h, credits);
+        h = mix(h, upgrades.minerSpeedLevel);
+        h = mix(h, upgrades.beltSpeedLevel);
+        h = mix(h, upgrades.storageCapacityLevel);
+
+        ArrayList<Building> all = buildings.getBuildings();
+        h = mix(h, all.size());
+        long sum = 0;
+        for (int i = 0; i < all.size(); i++) {
+            Building b = all.get(i);
+            long bh = mix(0, position(b));
+
+            if (b instanceof BasicMiner miner) {
+                bh = mix(bh, miner.getBuffer() == null ? -1 : miner.getBuffer().ordinal());
+                bh = mix(bh, Float.floatToIntBits(miner.getTimer()));
+            } else if (b instanceof Core core) {
+                for (ItemType type : ITEM_TYPES) {
+                    bh = mix(bh, core.getAmount(type));
+                    bh = mix(bh, core.getSaleQuantity(type));
+                }
+            }
+            sum += bh;
+        }
+        h = mix(h, sum);
+
+        ArrayList<TransportLine> lines = buildings.getTransportLines();
+        h = mix(h, lines.size());
+        sum = 0;
+        for (int l = 0; l < lines.size(); l++) {
+            TransportLine line = lines.get(l);
+            int count = line.getItemCount();
+            long lh = mix(0, position(line.getConveyor(0)));
+            lh = mix(lh, count);
+            for (int i = 0; i < count; i++) {
+                lh = mix(lh, ((long) line.getItemType(i).ordinal() << 32) | Float.floatToIntBits(line.getGap(i)) & 0xffffffffL);
+            }
+            sum += lh;
+        }
+        return mix(h, sum);
+    }
+
+    private static long position(Building b) {
+        return ((long) b.x << 32) | (b.y & 0xffffffffL);
+    }
+
+    private static long mix(long h, long value) {
+        h ^= value;
+        h *= 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 29);
+    }
+}
@@ -0,0 +1,70 @@
+package dev.lmcginnisno1.ironfall.game;
+
+/**
+ * Fixed-rate simulation clock. Frame time goes in through advance(), which
+ * banks it and returns how many whole ticks of TICK_SECONDS to run this
+ * frame, so the simulation always steps by the same amount no matter what
+ * the display is doing. The leftover fraction of a tick is exposed as
+ * alpha() for the renderer to interpolate between the last two ticks.
+ */
+public class SimulationClock {
+
+    public static final int TICKS_PER_SECOND = 60;
+    public static final float TICK_SECONDS = 1f / TICKS_PER_SECOND;
+
+    // Most ticks one frame may run, per unit of time scale. After a long
+    // hitch (window drag, GC, breakpoint) the backlog past this is dropped,
+    // otherwise a slow frame queues more ticks which makes the next frame
+    // slower still.
+    public static final int MAX_CATCH_UP_TICKS = 8;
+
+    private float accumulator = 0f;
+    private long tick = 0;
+
+    // Simulated seconds per real second
+    private float timeScale = 1f;
+
+    /** Banks frameDelta and returns the number of ticks to run now. */
+    public int advance(float frameDelta) {
+        accumulator += frameDelta * timeScale;
+
+        int maxSteps = MAX_CATCH_UP_TICKS * (int) Math.max(1f, (float) Math.ceil(timeScale));
+        int steps = (int) (accumulator / TICK_SECONDS);
+        if (steps > maxSteps) {
+            steps = maxSteps;
+            accumulator %= TICK_SECONDS;
+        } else {
+            accumulator -= steps * TICK_SECONDS;
+        }
+
+        return steps;
+    }
+
+    /** Call once after each simulated tick. */
+    public void tickCompleted() {
+        tick++;
+    }
+
+    /** Ticks simulated since the clock was created. */
+    public long getTick() {
+        return tick;
+    }
+
+    /** Loading a save: carries on counting from where it left off. */
+    public void setTick(long tick) {
+        this.tick = tick;
+    }
+
+    /** How far (0 to 1) real time has got into the next, not yet simulated, tick. */
+    public float alpha() {
+        return Math.min(1f, accumulator / TICK_SECONDS);
+    }
+
+    public float getTimeScale() {
+        return timeScale;
+    }
+
+    public void setTimeScale(float timeScale) {
+        this.timeScale = Math.max(0f, timeScale);
+    }
+}
@@ -0,0 +1,92 @@
+package dev.lmcginnisno1.ironfall.game;
+
+/**
+ * Fast-forward. Sets the clock's time scale to one of SPEEDS and runs each
+ * frame's ticks, but only for as long as BUDGET_NANOS allows: a big factory
+ * at 1000x would otherwise take seconds per frame. Ticks the budget leaves
+ * unrun are dropped, not owed, so the game never falls further and further
+ * behind; the warp just achieves less than was asked for.
+ *
+ * While warping the budget is more than a 60 Hz frame, so a factory that
+ * can't keep up trades frame rate for ticks: rendering thins out to about
+ * 20 frames a second and the rest of the time goes to the simulation. At
+ * 1x the budget doesn't apply and the clock's own catch-up cap is all there
+ * is, exactly as before.
+ *
+ * getAchievedSpeed() says how fast the simulation actually went, measured
+ * over the last SAMPLE_SECONDS of real time. Well short of getSpeed() means
+ * the simulation itself is the bottleneck.
+ */
+public class TimeWarp {
+
+    public static final float[] SPEEDS = { 1f, 2f, 10f, 100f, 1000f };
+
+    // Longest a warped frame spends ticking; ~40 ms leaves it ~20 fps when
+    // the simulation is the bottleneck, enough to see and stop the warp
+    private static final long BUDGET_NANOS = 40_000_000L;
+
+    private static final float SAMPLE_SECONDS = 0.5f;
+
+    private final Simulation sim;
+    private int level = 0;
+
+    private float sampleReal = 0f;
+    private long sampleTicks = 0;
+    private float achieved = 1f;
+
+    public TimeWarp(Simulation sim) {
+        this.sim = sim;
+    }
+
+    /** Runs this frame's ticks. Returns how many ran. */
+    public int update(float delta) {
+        int ticks = sim.clock.advance(delta);
+
+        int run = 0;
+        if (level == 0) {
+            for (; run < ticks; run++) sim.tick();
+        } else {
+            long start = System.nanoTime();
+            while (run < ticks && System.nanoTime() - start < BUDGET_NANOS) {
+                sim.tick();
+                run++;
+            }
+        }
+
+        sampleReal += delta;
+        sampleTicks += run;
+        if (sampleReal >= SAMPLE_SECONDS) {
+            achieved = sampleTicks * SimulationClock.TICK_SECONDS / sampleReal;
+            sampleReal = 0f;
+            sampleTicks = 0;
+        }
+        return run;
+    }
+
+    public void faster() {
+        setLevel(level + 1);
+    }
+
+    public void slower() {
+        setLevel(level - 1);
+    }
+
+    private void setLevel(int level) {
+        this.level = Math.max(0, Math.min(SPEEDS.length - 1, level));
+        sim.clock.setTimeScale(SPEEDS[this.level]);
+    }
+
+    public boolean isWarping() {
+        return level > 0;
+    }
+
+    /** The speed asked for, in simulated seconds per real second. */
+    public float getSpeed() {
+        return SPEEDS[level];
+    }
+
+    /** The speed actually reached lately, in simulated seconds per real second. */
+    public float getAchievedSpeed() {
+        return achieved;
+    }
+}
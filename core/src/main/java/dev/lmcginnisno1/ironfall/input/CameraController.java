@@ -10,6 +10,10 @@ import java.util.function.BooleanSupplier;
 
 public class CameraController {
 
+    // Far enough out that the world is drawn from the map texture (see
+    // WorldRenderer.MAP_ZOOM), where a frame costs one quad per chunk
+    public static final float MAX_ZOOM = 8f;
+
     private final OrthographicCamera camera;
 
     private boolean dragging = false;
@@ -82,9 +86,11 @@ public class CameraController {
     private void handleScroll(float amountY) {
         float zoomSpeed = 0.1f;
 
+        // Steps grow past 1x so the far end of the range is a few notches
+        // away rather than dozens
         float oldZoom = camera.zoom;
-        float newZoom = oldZoom + amountY * zoomSpeed;
-        newZoom = Math.max(0.1f, Math.min(newZoom, 1.5f));
+        float newZoom = oldZoom + amountY * zoomSpeed * Math.max(1f, oldZoom);
+        newZoom = Math.max(0.1f, Math.min(newZoom, MAX_ZOOM));
 
         zoomTowardCursor(newZoom);
     }
@@ -120,7 +126,8 @@ public class CameraController {
 
         float maxY = worldHeight - halfH;
 
-        camera.position.x = Math.max(halfW, Math.min(camera.position.x, maxX));
-        camera.position.y = Math.max(halfH, Math.min(camera.position.y, maxY));
+        // Zoomed out past the edges of a small map, keep it centred
+        camera.position.x = maxX < halfW ? worldWidth / 2f : Math.max(halfW, Math.min(camera.position.x, maxX));
+        camera.position.y = maxY < halfH ? worldHeight / 2f : Math.max(halfH, Math.min(camera.position.y, maxY));
     }
 }
@@ -22,6 +22,10 @@ public class InputController {
     public void update() {
         game.screenToTile(Gdx.input.getX(), Gdx.input.getY());
 
+        // Time warp works in any mode
+        if (Gdx.input.isKeyJustPressed(Input.Keys.PERIOD)) game.timeWarp.faster();
+        if (Gdx.input.isKeyJustPressed(Input.Keys.COMMA)) game.timeWarp.slower();
+
         switch (game.mode) {
             case NORMAL -> handleNormalMode();
             case SELECTING_SINGLE -> handleSingleSelectMode();
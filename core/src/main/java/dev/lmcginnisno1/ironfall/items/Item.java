@@ -1,4 +0,0 @@
-package dev.lmcginnisno1.ironfall.items;
-
-public record Item(ItemType type) {
-}
@@ -5,6 +5,9 @@ public enum ItemType {
     IRON(10, 15, "iron"),
     COPPER(11, 15, "copper");
 
+    // values() clones its array on every call; belts look types up by ordinal a lot
+    private static final ItemType[] BY_ORDINAL = values();
+
     public final int row;
     public final int col;
     public final String name;
@@ -15,6 +18,10 @@ public enum ItemType {
         this.name = name;
     }
 
+    public static ItemType fromOrdinal(int ordinal) {
+        return BY_ORDINAL[ordinal];
+    }
+
     public static ItemType oreTypeFromId(int id) {
         return switch (id) {
             case 11 -> ItemType.COAL;
@@ -8,9 +8,9 @@ import com.badlogic.gdx.math.Vector2;
 
 import dev.lmcginnisno1.ironfall.IronfallGame;
 import dev.lmcginnisno1.ironfall.buildings.*;
+import dev.lmcginnisno1.ironfall.game.Command;
 import dev.lmcginnisno1.ironfall.game.GameMode;
 import dev.lmcginnisno1.ironfall.tiles.Assets;
-import dev.lmcginnisno1.ironfall.tiles.TileType;
 
 import java.util.ArrayList;
 
@@ -91,17 +91,16 @@ public class PlacementController {
         int py = game.tileY - prototype.height / 2;
 
         boolean valid = buildings.canPlace(px, py, prototype.width, prototype.height);
-        boolean canAfford = game.credits >= prototype.cost;
+        boolean canAfford = game.sim.credits >= prototype.cost;
         valid &= canAfford;
 
         // Miner-specific validation
         if (prototype instanceof BasicMiner) {
-            valid &= oreCheck(px, py, prototype.width, prototype.height);
+            valid &= BasicMiner.hasOre(game.engine, px, py);
         }
 
         if (leftJustPressed && valid) {
-            game.credits -= prototype.cost;
-            buildings.place(prototype.copyAt(px, py));
+            game.sim.execute(new Command.Place(prototype, px, py));
             // Deliberately not resetting prototype/mode here: staying in
             // PLACING_GENERIC lets the player place another one immediately.
             // Right-click (below) is the way to exit placement mode.
@@ -126,11 +125,11 @@ public class PlacementController {
         int py = game.tileY - prototype.height / 2;
 
         boolean valid = buildings.canPlace(px, py, prototype.width, prototype.height);
-        valid &= game.credits >= prototype.cost;
+        valid &= game.sim.credits >= prototype.cost;
 
         // Miner-specific validation
         if (prototype instanceof BasicMiner) {
-            valid &= oreCheck(px, py, prototype.width, prototype.height);
+            valid &= BasicMiner.hasOre(game.engine, px, py);
         }
 
         batch.setColor(valid ? 0f : 1f, valid ? 1f : 0f, 0f, 0.5f);
@@ -181,19 +180,18 @@ public class PlacementController {
             draggingConveyor = false;
 
             if (cachedPath != null) {
-                int totalCost = cachedPath.size() * Conveyor.COST;
-
-                if (game.credits >= totalCost) {
-                    game.credits -= totalCost;
-
-                    for (int i = 0; i < cachedPath.size(); i++) {
-                        Vector2 p = cachedPath.get(i);
-                        Conveyor.Direction dir = conveyorHelper.getDirectionForIndex(cachedPath, i);
-                        buildings.place(new Conveyor((int)p.x, (int)p.y, dir));
-                    }
+                int n = cachedPath.size();
+                int[] xs = new int[n], ys = new int[n];
+                Conveyor.Direction[] directions = new Conveyor.Direction[n];
+
+                for (int i = 0; i < n; i++) {
+                    Vector2 p = cachedPath.get(i);
+                    xs[i] = (int) p.x;
+                    ys[i] = (int) p.y;
+                    directions[i] = conveyorHelper.getDirectionForIndex(cachedPath, i);
                 }
-                // Can't afford the full run: place nothing, rather than
-                // leaving a partial belt that doesn't reach where intended.
+                // Places nothing if the whole run can't be afforded
+                game.sim.execute(new Command.PlaceBelt(xs, ys, directions));
             }
 
             cachedPath = null;
@@ -230,7 +228,7 @@ public class PlacementController {
 
         if (cachedPath == null) return;
 
-        boolean canAfford = game.credits >= cachedPath.size() * Conveyor.COST;
+        boolean canAfford = game.sim.credits >= cachedPath.size() * Conveyor.COST;
 
         for (int i = 0; i < cachedPath.size(); i++) {
             Vector2 p = cachedPath.get(i);
@@ -251,23 +249,4 @@ public class PlacementController {
             case RIGHT -> Assets.conveyorRight;
         };
     }
-
-    private boolean oreCheck(int x, int y, int w, int h) {
-        TileType oreType = null;
-        int oreCount = 0;
-
-        for (int dy = 0; dy < h; dy++) {
-            for (int dx = 0; dx < w; dx++) {
-                TileType t = TileType.fromId(game.engine.getTile(x + dx, y + dy));
-
-                if (t == TileType.COAL || t == TileType.IRON || t == TileType.COPPER) {
-                    if (oreType == null) oreType = t;
-                    if (t != oreType) return false;  // must be uniform ore
-                    oreCount++;
-                }
-            }
-        }
-
-        return oreCount >= 1;  // must have at least one ore tile
-    }
 }
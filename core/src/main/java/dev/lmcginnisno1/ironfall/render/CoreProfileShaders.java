@@ -0,0 +1,44 @@
+package dev.lmcginnisno1.ironfall.render;
+
+import com.badlogic.gdx.graphics.glutils.ShaderProgram;
+
+/**
+ * GLSL 1.50 headers for running on a desktop GL 3.2 core context. libGDX's
+ * own shaders (SpriteBatch, SpriteCache, BitmapFont) are GLSL 1.10 with no
+ * #version line, which core profiles on macOS and Mesa refuse to compile.
+ * Prepended to every ShaderProgram, these make them 1.50 instead: the old
+ * qualifiers and built-ins are defined to their replacements, and the
+ * fragment shader gets an out for what gl_FragColor used to be.
+ *
+ * Shaders written for this (InstancedItemRenderer's) use in, out, texture()
+ * and fragColor directly and leave the #version line to the prepend.
+ */
+public final class CoreProfileShaders {
+
+    static final String VERTEX_HEADER =
+        "#version 150\n" +
+        "#define attribute in\n" +
+        "#define varying out\n";
+
+    static final String FRAGMENT_HEADER =
+        "#version 150\n" +
+        "#define varying in\n" +
+        "#define texture2D texture\n" +
+        "#define gl_FragColor fragColor\n" +
+        "out vec4 fragColor;\n";
+
+    private CoreProfileShaders() {
+    }
+
+    /** Call before any ShaderProgram is made, i.e. before the application starts. */
+    public static void install() {
+        ShaderProgram.prependVertexCode = VERTEX_HEADER;
+        ShaderProgram.prependFragmentCode = FRAGMENT_HEADER;
+    }
+
+    /** Whether install() has been called. */
+    static boolean installed() {
+        return VERTEX_HEADER.equals(ShaderProgram.prependVertexCode)
+            && FRAGMENT_HEADER.equals(ShaderProgram.prependFragmentCode);
+    }
+}
@@ -0,0 +1,228 @@
+package dev.lmcginnisno1.ironfall.render;
+
+import com.badlogic.gdx.Application;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.Mesh;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.VertexAttribute;
+import com.badlogic.gdx.graphics.VertexAttributes;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.graphics.glutils.ShaderProgram;
+import com.badlogic.gdx.math.Matrix4;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Disposable;
+import dev.lmcginnisno1.ironfall.buildings.Conveyor;
+import dev.lmcginnisno1.ironfall.buildings.TransportLine;
+import dev.lmcginnisno1.ironfall.items.ItemType;
+import dev.lmcginnisno1.ironfall.tiles.Assets;
+import dev.lmcginnisno1.ironfall.tiles.TileEngine;
+
+/**
+ * Draws belt items as instances of one quad, for GL30 (GLES3) devices. Each
+ * item is a record of RECORD_FLOATS floats: the tile it was on at the last
+ * tick, how far into it, how far it moved that tick, the tile's direction
+ * and its type. The vertex shader backs each item off by the part of that
+ * move the frame hasn't reached yet and picks its sprite, so the CPU writes
+ * 7 floats per item instead of a SpriteBatch quad.
+ *
+ * Records only change when a tick has run or the view has moved. Frames in
+ * between (a display faster than the 60 Hz tick) just redraw the buffer
+ * with a new alpha.
+ *
+ * Where an item crossed a corner during the last tick the shader slides it
+ * back along the new tile's direction rather than the old one's, so for
+ * that frame it's a pixel or so off the belt.
+ */
+class InstancedItemRenderer implements Disposable {
+
+    private static final int RECORD_FLOATS = 7;
+    private static final int MIN_CAPACITY = 4096;
+
+    private static final ItemType[] TYPES = ItemType.values();
+
+    // GLSL 3 for the context this only runs on. On the desktop's 3.2 core
+    // profile the #version 150 line and fragColor come from
+    // CoreProfileShaders, prepended to every shader; GLES3 has no prepend,
+    // so it gets the same here as 300 es. Instancing itself only needs the
+    // attribute divisors, which the Mesh sets up.
+    private static final String GLES_VERTEX_HEADER = "#version 300 es\n";
+    private static final String GLES_FRAGMENT_HEADER = "#version 300 es\nprecision mediump float;\nout vec4 fragColor;\n";
+
+    private static final String VERTEX_SHADER =
+        "in vec2 a_corner;\n" +
+        "in vec4 a_item;\n" +   // tile x, tile y, progress at the tick, last tick's move
+        "in vec3 a_kind;\n" +   // direction dx, dy, item type ordinal
+        "uniform mat4 u_projTrans;\n" +
+        "uniform float u_alpha;\n" +
+        "uniform float u_tileSize;\n" +
+        "uniform vec4 u_regions[" + TYPES.length + "];\n" +   // u, v, u2, v2 per item type
+        "out vec2 v_texCoord;\n" +
+        "void main() {\n" +
+        "    float p = a_item.z - a_item.w * (1.0 - u_alpha);\n" +
+        "    vec2 pos = (a_item.xy + a_kind.xy * p) * u_tileSize + a_corner * u_tileSize;\n" +
+        "    vec4 r = u_regions[int(a_kind.z)];\n" +
+        "    v_texCoord = vec2(mix(r.x, r.z, a_corner.x), mix(r.w, r.y, a_corner.y));\n" +
+        "    gl_Position = u_projTrans * vec4(pos, 0.0, 1.0);\n" +
+        "}\n";
+
+    private static final String FRAGMENT_SHADER =
+        "in vec2 v_texCoord;\n" +
+        "uniform sampler2D u_texture;\n" +
+        "void main() {\n" +
+        "    fragColor = texture(u_texture, v_texCoord);\n" +
+        "}\n";
+
+    private final ShaderProgram shader;
+    private final Texture texture;
+    private final float[] regions = new float[TYPES.length * 4];
+
+    private Mesh mesh;
+    private int capacity = 0;
+
+    private float[] records = new float[MIN_CAPACITY * RECORD_FLOATS];
+    private int count = 0;
+
+    // What the records were built from
+    private long builtTick = -1;
+    private int builtMinX, builtMinY, builtMaxX, builtMaxY;
+
+    /**
+     * Returns null where instancing isn't available (no GL30) or the shader
+     * won't compile, in which case items are drawn through the SpriteBatch.
+     */
+    static InstancedItemRenderer create() {
+        if (Gdx.gl30 == null) {
+            Gdx.app.log("InstancedItemRenderer", "No GL30 context, drawing belt items through the SpriteBatch");
+            return null;
+        }
+
+        boolean desktop = Gdx.app.getType() == Application.ApplicationType.Desktop;
+        if (desktop && !CoreProfileShaders.installed()) {
+            Gdx.app.error("InstancedItemRenderer", "GL30 context without CoreProfileShaders installed, drawing belt items through the SpriteBatch");
+            return null;
+        }
+
+        ShaderProgram shader = desktop
+            ? new ShaderProgram(VERTEX_SHADER, FRAGMENT_SHADER)
+            : new ShaderProgram(GLES_VERTEX_HEADER + VERTEX_SHADER, GLES_FRAGMENT_HEADER + FRAGMENT_SHADER);
+        if (!shader.isCompiled()) {
+            // As an error, which the default log level shows: a driver that
+            // rejects this is worth reporting, not just working around
+            Gdx.app.error("InstancedItemRenderer", "Item shader didn't compile, drawing belt items through the SpriteBatch instead:\n" + shader.getLog());
+            shader.dispose();
+            return null;
+        }
+        Gdx.app.log("InstancedItemRenderer", "Drawing belt items instanced, GLSL " + (desktop ? "150" : "300 es"));
+        return new InstancedItemRenderer(shader);
+    }
+
+    private InstancedItemRenderer(ShaderProgram shader) {
+        this.shader = shader;
+
+        // Every item sprite is a tilesheet cell, so one texture covers them all
+        this.texture = Assets.tile(TYPES[0].row, TYPES[0].col).getTexture();
+        for (ItemType type : TYPES) {
+            TextureRegion r = Assets.tile(type.row, type.col);
+            int at = type.ordinal() * 4;
+            regions[at] = r.getU();
+            regions[at + 1] = r.getV();
+            regions[at + 2] = r.getU2();
+            regions[at + 3] = r.getV2();
+        }
+    }
+
+    /**
+     * Draws the items on lines, which should be every line with items near
+     * view. Must be called outside of any batch.begin()/end() pair.
+     */
+    void render(Matrix4 projection, ViewBounds view, Array<TransportLine> lines, long tick, float alpha) {
+        if (tick != builtTick || view.minX != builtMinX || view.minY != builtMinY
+            || view.maxX != builtMaxX || view.maxY != builtMaxY) {
+            build(view, lines);
+            builtTick = tick;
+            builtMinX = view.minX;
+            builtMinY = view.minY;
+            builtMaxX = view.maxX;
+            builtMaxY = view.maxY;
+        }
+        if (count == 0) return;
+
+        Gdx.gl.glEnable(GL20.GL_BLEND);
+        Gdx.gl.glBlendFunc(GL20.GL_SRC_ALPHA, GL20.GL_ONE_MINUS_SRC_ALPHA);
+
+        texture.bind(0);
+        shader.bind();
+        shader.setUniformMatrix("u_projTrans", projection);
+        shader.setUniformi("u_texture", 0);
+        shader.setUniformf("u_alpha", alpha);
+        shader.setUniformf("u_tileSize", TileEngine.TILE_SIZE);
+        shader.setUniform4fv("u_regions", regions, 0, regions.length);
+
+        mesh.render(shader, GL20.GL_TRIANGLES, 0, 6);
+    }
+
+    // Same walk as WorldRenderer's SpriteBatch path, but at the tick itself
+    // (alpha 1); the shader does the interpolation
+    private void build(ViewBounds view, Array<TransportLine> lines) {
+        count = 0;
+
+        for (int l = 0; l < lines.size; l++) {
+            TransportLine line = lines.get(l);
+            if (line.maxX < view.minX || line.minX > view.maxX || line.maxY < view.minY || line.minY > view.maxY) continue;
+
+            int length = line.getLength();
+            float d = 0f;
+
+            for (int i = 0; i < line.getItemCount(); i++) {
+                d += line.getGap(i);
+
+                float pos = length - d;
+                int index = Math.max(0, Math.min((int) Math.floor(pos), length - 1));
+
+                Conveyor c = line.getConveyor(index);
+                if (!view.contains(c.x, c.y)) continue;
+
+                if ((count + 1) * RECORD_FLOATS > records.length) {
+                    float[] grown = new float[records.length * 2];
+                    System.arraycopy(records, 0, grown, 0, count * RECORD_FLOATS);
+                    records = grown;
+                }
+
+                int at = count * RECORD_FLOATS;
+                records[at] = c.x;
+                records[at + 1] = c.y;
+                records[at + 2] = pos - index;
+                records[at + 3] = line.getLastMove(i);
+                records[at + 4] = c.direction.dx;
+                records[at + 5] = c.direction.dy;
+                records[at + 6] = line.getItemType(i).ordinal();
+                count++;
+            }
+        }
+
+        if (count > capacity) grow(count);
+        if (count > 0) mesh.setInstanceData(records, 0, count * RECORD_FLOATS);
+    }
+
+    // The instance buffer is fixed-size once made, so start over with a
+    // bigger mesh, as TerrainCache does with its SpriteCache
+    private void grow(int needed) {
+        if (mesh != null) mesh.dispose();
+
+        capacity = Math.max(MIN_CAPACITY, needed + needed / 2);
+
+        mesh = new Mesh(true, 4, 6, new VertexAttribute(VertexAttributes.Usage.Position, 2, "a_corner"));
+        mesh.setVertices(new float[] { 0, 0, 1, 0, 1, 1, 0, 1 });
+        mesh.setIndices(new short[] { 0, 1, 2, 2, 3, 0 });
+        mesh.enableInstancedRendering(false, capacity,
+            new VertexAttribute(VertexAttributes.Usage.Generic, 4, "a_item"),
+            new VertexAttribute(VertexAttributes.Usage.Generic, 3, "a_kind"));
+    }
+
+    @Override
+    public void dispose() {
+        shader.dispose();
+        if (mesh != null) mesh.dispose();
+    }
+}
@@ -0,0 +1,181 @@
+package dev.lmcginnisno1.ironfall.render;
+
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.IntMap;
+import dev.lmcginnisno1.ironfall.buildings.Building;
+import dev.lmcginnisno1.ironfall.buildings.BuildingManager;
+import dev.lmcginnisno1.ironfall.tiles.TileEngine;
+import dev.lmcginnisno1.ironfall.tiles.TileType;
+
+/**
+ * The world at one texel per tile, for drawing it far away: each chunk's
+ * tiles in their TileType.mapColor, with buildings over them in
+ * Building.getMapColor(). Chunks live in slots of one texture, so the
+ * zoomed-out world and the minimap are each a single-texture run of one
+ * quad per chunk.
+ *
+ * Like TerrainCache, slots go to chunks as they're asked for and the one
+ * used longest ago is given up when they run out, and a chunk is only
+ * redrawn when TileEngine's chunk version or BuildingManager's layout
+ * version for it has moved. Belts moving items don't change either, so a
+ * running factory costs nothing here.
+ */
+class MapTexture implements Disposable {
+
+    private static final int CHUNK = TileEngine.CHUNK_SIZE;
+
+    private static final int MIN_SLOTS = 256;
+
+    private static final class Slot {
+        int chunk = -1;           // chunk index, cy * chunksX + cx
+        int tileVersion = -1;     // TileEngine chunk version it was drawn from
+        int layoutVersion = -1;   // BuildingManager layout version it was drawn from
+        long lastUsed;
+        int index;                // position in the texture, in slots
+        TextureRegion region;
+    }
+
+    private final TileEngine engine;
+    private final BuildingManager buildings;
+
+    private Texture texture;
+    private int slotsPerRow;
+    private final Array<Slot> slots = new Array<>();
+    private final IntMap<Slot> byChunk = new IntMap<>();
+    private int capacity = 0;
+    private long frame = 0;
+
+    private final Pixmap pixmap = new Pixmap(CHUNK, CHUNK, Pixmap.Format.RGBA8888);
+
+    MapTexture(TileEngine engine, BuildingManager buildings) {
+        this.engine = engine;
+        this.buildings = buildings;
+        // Written texel by texel, transparent ones included
+        pixmap.setBlending(Pixmap.Blending.None);
+    }
+
+    /**
+     * Starts a frame that will ask for at most needed chunks between every
+     * update() call. Slots from earlier frames stay until they're needed.
+     */
+    void beginFrame(int needed) {
+        if (needed > capacity) grow(needed);
+        frame++;
+    }
+
+    /**
+     * Brings chunks (cx0, cy0) to (cx1, cy1) up to date for this frame. Draws
+     * into the texture, so call it outside of any batch.begin()/end() pair.
+     * Streamed chunks that aren't loaded yet are skipped until they are.
+     */
+    void update(int cx0, int cy0, int cx1, int cy1) {
+        cx0 = Math.max(cx0, 0);
+        cy0 = Math.max(cy0, 0);
+        cx1 = Math.min(cx1, engine.getChunksX() - 1);
+        cy1 = Math.min(cy1, engine.getChunksY() - 1);
+
+        for (int cy = cy0; cy <= cy1; cy++) {
+            for (int cx = cx0; cx <= cx1; cx++) {
+                int tileVersion = engine.getChunkVersion(cx, cy);
+                if (tileVersion == -1) continue;
+
+                int chunk = cy * engine.getChunksX() + cx;
+                Slot slot = byChunk.get(chunk);
+                if (slot == null) slot = claim(chunk);
+
+                int layoutVersion = buildings.getLayoutVersion(cx, cy);
+                if (slot.tileVersion != tileVersion || slot.layoutVersion != layoutVersion) {
+                    redraw(cx, cy, slot);
+                    slot.tileVersion = tileVersion;
+                    slot.layoutVersion = layoutVersion;
+                }
+                slot.lastUsed = frame;
+            }
+        }
+    }
+
+    /** Chunk (cx, cy), if an update() this frame covered it; otherwise null. */
+    TextureRegion get(int cx, int cy) {
+        Slot slot = byChunk.get(cy * engine.getChunksX() + cx);
+        return slot != null && slot.lastUsed == frame ? slot.region : null;
+    }
+
+    // Capacity is at least what a frame asks for, so the least recently used
+    // slot is never one this frame still needs
+    private Slot claim(int chunk) {
+        Slot slot;
+        if (slots.size < capacity) {
+            slot = new Slot();
+            slot.index = slots.size;
+            slot.region = new TextureRegion(texture, slotX(slot), slotY(slot), CHUNK, CHUNK);
+            slots.add(slot);
+        } else {
+            slot = slots.first();
+            for (Slot s : slots) {
+                if (s.lastUsed < slot.lastUsed) slot = s;
+            }
+            byChunk.remove(slot.chunk);
+        }
+
+        slot.chunk = chunk;
+        slot.tileVersion = -1;
+        slot.layoutVersion = -1;
+        byChunk.put(chunk, slot);
+        return slot;
+    }
+
+    // Zooming further out can need more slots than the texture has room for.
+    // Start over with a bigger one, a power of two on a side.
+    private void grow(int needed) {
+        if (texture != null) texture.dispose();
+
+        capacity = Math.max(MIN_SLOTS, needed + needed / 2);
+        slotsPerRow = Integer.highestOneBit((int) Math.ceil(Math.sqrt(capacity)) - 1) << 1;
+        capacity = slotsPerRow * slotsPerRow;
+
+        texture = new Texture(slotsPerRow * CHUNK, slotsPerRow * CHUNK, Pixmap.Format.RGBA8888);
+        texture.setFilter(Texture.TextureFilter.Nearest, Texture.TextureFilter.Nearest);
+        slots.clear();
+        byChunk.clear();
+    }
+
+    private void redraw(int cx, int cy, Slot slot) {
+        int x0 = cx * CHUNK;
+        int y0 = cy * CHUNK;
+
+        for (int ly = 0; ly < CHUNK; ly++) {
+            for (int lx = 0; lx < CHUNK; lx++) {
+                int x = x0 + lx;
+                int y = y0 + ly;
+
+                int color = 0; // past the map edge: transparent
+                if (engine.inBounds(x, y)) {
+                    Building b = buildings.getAt(x, y);
+                    color = b != null ? b.getMapColor() : TileType.fromId(engine.getTile(x, y)).mapColor;
+                }
+                // Pixmap rows run top down, the world bottom up
+                pixmap.drawPixel(lx, CHUNK - 1 - ly, color);
+            }
+        }
+
+        texture.draw(pixmap, slotX(slot), slotY(slot));
+    }
+
+    private int slotX(Slot slot) {
+        return (slot.index % slotsPerRow) * CHUNK;
+    }
+
+    private int slotY(Slot slot) {
+        return (slot.index / slotsPerRow) * CHUNK;
+    }
+
+    @Override
+    public void dispose() {
+        if (texture != null) texture.dispose();
+        pixmap.dispose();
+    }
+}
@@ -8,6 +8,7 @@ import com.badlogic.gdx.math.Vector3;
 
 import dev.lmcginnisno1.ironfall.IronfallGame;
 import dev.lmcginnisno1.ironfall.buildings.*;
+import dev.lmcginnisno1.ironfall.game.Command;
 import dev.lmcginnisno1.ironfall.game.Upgrades;
 import dev.lmcginnisno1.ironfall.items.ItemType;
 import dev.lmcginnisno1.ironfall.selection.SelectionManager;
@@ -90,7 +91,7 @@ public class OverlayRenderer {
         int screenY = com.badlogic.gdx.Gdx.input.getY();
 
         // 2. Leverage TileEngine's camera unprojection to get the exact map grid index
-        com.badlogic.gdx.math.Vector2 tileCoords = game.engine.screenToWorld(screenX, screenY);
+        com.badlogic.gdx.math.Vector2 tileCoords = game.screenToWorld(screenX, screenY);
         int tileX = (int) tileCoords.x;
         int tileY = (int) tileCoords.y;
 
@@ -114,7 +115,7 @@ public class OverlayRenderer {
             font.setColor(1f, 1f, 1f, 1f); // Reset font color back to standard white
         }
 
-        batch.setProjectionMatrix(game.engine.getCamera().combined);
+        batch.setProjectionMatrix(game.camera.combined);
     }
 
     // ---------------------------------------------------------------
@@ -133,7 +134,7 @@ public class OverlayRenderer {
         float worldX = (core.x + core.width  / 2f) * TileEngine.TILE_SIZE;
         float worldY = (core.y + core.height / 2f) * TileEngine.TILE_SIZE;
 
-        Vector3 screen = game.engine.getCamera().project(new Vector3(worldX, worldY, 0));
+        Vector3 screen = game.camera.project(new Vector3(worldX, worldY, 0));
 
         panelX = (int) screen.x + 40;
         panelY = (int) screen.y + 40;
@@ -159,7 +160,7 @@ public class OverlayRenderer {
         int storageCap = upgrades.storageCap();
 
         for (ItemType type : types) {
-            int amount = core.getInventory().getOrDefault(type, 0);
+            int amount = core.getAmount(type);
 
             totalItemsInCore += amount;
             totalPossibleEarnings += (amount * core.getPriceForType(type));
@@ -176,7 +177,7 @@ public class OverlayRenderer {
             int drawY = panelY - FIRST_ROW_Y_OFFSET - rowIndex * ROW_SPACING;
             lastDrawY = drawY;
 
-            TextureRegion icon = game.engine.getRegion(type.row, type.col);
+            TextureRegion icon = Assets.tile(type.row, type.col);
             batch.draw(icon, panelX, drawY - 16, 16, 16);
 
             boolean atCap = amount >= storageCap;
@@ -276,7 +277,7 @@ public class OverlayRenderer {
         int bx, int by, int bw, int bh,
         String label, int level, boolean maxed, ItemType resource, int cost
     ) {
-        int have = core.getInventory().getOrDefault(resource, 0);
+        int have = core.getAmount(resource);
         boolean canAfford = !maxed && have >= cost;
 
         if (maxed) {
@@ -332,8 +333,16 @@ public class OverlayRenderer {
         batch.setColor(1f, 1f, 1f, 1f);
 
         font.setColor(1f, 0.85f, 0.2f, 1f);
-        font.draw(batch, "CREDITS: " + game.credits + "c", posX + 12, posY + 20);
+        font.draw(batch, "CREDITS: " + game.sim.credits + "c", posX + 12, posY + 20);
         font.setColor(1f, 1f, 1f, 1f);
+
+        if (game.timeWarp.isWarping()) {
+            // What was asked for and what the simulation actually managed
+            String warp = String.format("WARP %.0fx (actual %.0fx)", game.timeWarp.getSpeed(), game.timeWarp.getAchievedSpeed());
+            font.setColor(0.4f, 0.8f, 1f, 1f);
+            TextUtil.drawOutlined(font, batch, warp, posX + 12, posY - 10);
+            font.setColor(1f, 1f, 1f, 1f);
+        }
     }
 
     private void drawCategoryContents(SpriteBatch batch, BuildCategory cat, int x, int startY) {
@@ -461,65 +470,32 @@ public class OverlayRenderer {
                 Building sel = selection.getSelected();
                 if (sel instanceof Core core) {
                     draggingSliderItem = result.sliderItem;
-                    core.setSalePercentage(result.sliderItem, result.sliderValue);
+                    setSale(core, result.sliderItem, result.sliderValue);
                 }
             }
             case CORE_SELL_CLICK -> {
                 Building sel = selection.getSelected();
                 if (sel instanceof Core core) {
-                    int payout = core.sellSelectedItems();
-                    if (payout > 0) {
-                        game.credits += payout;
-                        System.out.println("Sold materials! Added " + payout + "c. Wallet: " + game.credits + "c");
-                    }
+                    game.sim.execute(new Command.Sell(core.x, core.y));
                 }
             }
             case CORE_SELL_ALL_CLICK -> {
                 Building sel = selection.getSelected();
                 if (sel instanceof Core core) {
-                    int payout = core.sellAllItems();
-                    if (payout > 0) {
-                        game.credits += payout;
-                        System.out.println("Sold ALL stored materials! Added " + payout + "c. Wallet: " + game.credits + "c");
-                    }
-                }
-            }
-            case CORE_UPGRADE_MINER_CLICK -> {
-                Building sel = selection.getSelected();
-                if (sel instanceof Core core) {
-                    Upgrades upgrades = game.buildingManager.getUpgrades();
-                    if (!upgrades.isMinerMaxed()) {
-                        int cost = upgrades.minerUpgradeCost();
-                        if (core.trySpendResource(upgrades.minerUpgradeResource(), cost)) {
-                            upgrades.minerSpeedLevel++;
-                        }
-                    }
-                }
-            }
-            case CORE_UPGRADE_BELT_CLICK -> {
-                Building sel = selection.getSelected();
-                if (sel instanceof Core core) {
-                    Upgrades upgrades = game.buildingManager.getUpgrades();
-                    if (!upgrades.isBeltMaxed()) {
-                        int cost = upgrades.beltUpgradeCost();
-                        if (core.trySpendResource(upgrades.beltUpgradeResource(), cost)) {
-                            upgrades.beltSpeedLevel++;
-                        }
-                    }
-                }
-            }
-            case CORE_UPGRADE_STORAGE_CLICK -> {
-                Building sel = selection.getSelected();
-                if (sel instanceof Core core) {
-                    Upgrades upgrades = game.buildingManager.getUpgrades();
-                    if (!upgrades.isStorageMaxed()) {
-                        int cost = upgrades.storageUpgradeCost();
-                        if (core.trySpendResource(upgrades.storageUpgradeResource(), cost)) {
-                            upgrades.storageCapacityLevel++;
-                        }
-                    }
+                    game.sim.execute(new Command.SellAll(core.x, core.y));
                 }
             }
+            case CORE_UPGRADE_MINER_CLICK -> upgrade(Command.Upgrade.Track.MINER);
+            case CORE_UPGRADE_BELT_CLICK -> upgrade(Command.Upgrade.Track.BELT);
+            case CORE_UPGRADE_STORAGE_CLICK -> upgrade(Command.Upgrade.Track.STORAGE);
+        }
+    }
+
+    // Paid for from the selected Core's stock; does nothing if it can't be
+    private void upgrade(Command.Upgrade.Track track) {
+        Building sel = selection.getSelected();
+        if (sel instanceof Core core) {
+            game.sim.execute(new Command.Upgrade(core.x, core.y, track));
         }
     }
 
@@ -529,10 +505,17 @@ public class OverlayRenderer {
         if (sel instanceof Core core) {
             Rectangle track = getSliderRect(draggingSliderItem);
             float relativeX = (sx - track.x) / track.width;
-            core.setSalePercentage(draggingSliderItem, relativeX);
+            setSale(core, draggingSliderItem, relativeX);
         }
     }
 
+    // Called every frame of a drag, but every command executed is journaled,
+    // so only the ones that move the locked quantity go through
+    private void setSale(Core core, ItemType type, float pct) {
+        if (core.saleQuantityAt(type, pct) == core.getSaleQuantity(type)) return;
+        game.sim.execute(new Command.SetSale(core.x, core.y, type, pct));
+    }
+
     public void stopDragging() {
         draggingSliderItem = null;
     }
@@ -0,0 +1,174 @@
+package dev.lmcginnisno1.ironfall.render;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.g2d.SpriteCache;
+import com.badlogic.gdx.math.Matrix4;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.IntMap;
+import dev.lmcginnisno1.ironfall.tiles.Assets;
+import dev.lmcginnisno1.ironfall.tiles.TileEngine;
+import dev.lmcginnisno1.ironfall.tiles.TileType;
+
+/**
+ * Static terrain geometry. Each CHUNK_SIZE x CHUNK_SIZE block of tiles is
+ * built once into its own SpriteCache entry and only rebuilt when the
+ * TileEngine's version counter for that chunk moves, i.e. when setTile
+ * actually changed something inside it. Drawing the map is then one
+ * cache draw per chunk instead of one SpriteBatch quad per tile.
+ *
+ * Cache entries are slots handed out to chunks as they come into view, so
+ * the cache is sized by what the camera can see rather than by the map.
+ * Once every slot is taken, the chunk drawn longest ago gives up its slot.
+ * Streamed chunks that aren't loaded yet are skipped until they are.
+ *
+ * Every slot holds a full chunk of vertices (about 120 KB), so views of more
+ * than MAX_VISIBLE chunks aren't drawn from here; WorldRenderer switches to
+ * the MapTexture for them.
+ */
+class TerrainCache implements Disposable {
+
+    private static final int TILES_PER_CHUNK = TileEngine.CHUNK_SIZE * TileEngine.CHUNK_SIZE;
+
+    private static final int MIN_SLOTS = 64;
+
+    // Covers a 2560x1440 window at WorldRenderer.MAP_ZOOM with room to spare,
+    // and caps the cache at 1.5x this many slots (about 23 MB)
+    static final int MAX_VISIBLE = 128;
+
+    private static final class Slot {
+        int chunk = -1;          // chunk index, cy * chunksX + cx
+        int cacheId = -1;        // SpriteCache id, -1 until first built
+        int builtVersion = -1;   // TileEngine chunk version the entry was built from
+        long lastDrawn;
+    }
+
+    private final TileEngine engine;
+
+    private SpriteCache cache;
+    private final Array<Slot> slots = new Array<>();
+    private final IntMap<Slot> byChunk = new IntMap<>();
+    private int capacity = 0;
+    private long frame = 0;
+
+    TerrainCache(TileEngine engine) {
+        this.engine = engine;
+    }
+
+    void render(Matrix4 projection, ViewBounds view) {
+        if (view.isEmpty()) return;
+
+        int chunksX = engine.getChunksX();
+        int cx0 = view.minX / TileEngine.CHUNK_SIZE;
+        int cy0 = view.minY / TileEngine.CHUNK_SIZE;
+        int cx1 = view.maxX / TileEngine.CHUNK_SIZE;
+        int cy1 = view.maxY / TileEngine.CHUNK_SIZE;
+
+        int visible = (cx1 - cx0 + 1) * (cy1 - cy0 + 1);
+        if (visible > capacity) grow(visible);
+        frame++;
+
+        // Rebuilds have to happen outside cache.begin()/end(). Off-screen
+        // chunks stay stale until they scroll into view.
+        for (int cy = cy0; cy <= cy1; cy++) {
+            for (int cx = cx0; cx <= cx1; cx++) {
+                int version = engine.getChunkVersion(cx, cy);
+                if (version == -1) continue;
+
+                int chunk = cy * chunksX + cx;
+                Slot slot = byChunk.get(chunk);
+                if (slot == null) slot = claim(chunk);
+
+                if (slot.builtVersion != version) {
+                    rebuild(cx, cy, slot);
+                    slot.builtVersion = version;
+                }
+                slot.lastDrawn = frame;
+            }
+        }
+
+        Gdx.gl.glEnable(GL20.GL_BLEND);
+        Gdx.gl.glBlendFunc(GL20.GL_SRC_ALPHA, GL20.GL_ONE_MINUS_SRC_ALPHA);
+
+        cache.setProjectionMatrix(projection);
+        cache.begin();
+        for (int cy = cy0; cy <= cy1; cy++) {
+            for (int cx = cx0; cx <= cx1; cx++) {
+                Slot slot = byChunk.get(cy * chunksX + cx);
+                if (slot != null && slot.lastDrawn == frame) cache.draw(slot.cacheId);
+            }
+        }
+        cache.end();
+    }
+
+    // Capacity is at least what's visible, so the least recently drawn slot
+    // is never one this frame still needs
+    private Slot claim(int chunk) {
+        Slot slot;
+        if (slots.size < capacity) {
+            slot = new Slot();
+            slots.add(slot);
+        } else {
+            slot = slots.first();
+            for (Slot s : slots) {
+                if (s.lastDrawn < slot.lastDrawn) slot = s;
+            }
+            byChunk.remove(slot.chunk);
+        }
+
+        slot.chunk = chunk;
+        slot.builtVersion = -1;
+        byChunk.put(chunk, slot);
+        return slot;
+    }
+
+    // Zooming out or a bigger window can need more slots than the cache was
+    // made with. SpriteCache can't grow, so start over with a bigger one.
+    private void grow(int visible) {
+        if (cache != null) cache.dispose();
+
+        capacity = Math.max(MIN_SLOTS, visible + visible / 2);
+
+        // No indices: an indexed SpriteCache tops out at 8191 sprites, which
+        // is fewer than eight chunks' worth.
+        cache = new SpriteCache(capacity * TILES_PER_CHUNK, false);
+        slots.clear();
+        byChunk.clear();
+    }
+
+    private void rebuild(int cx, int cy, Slot slot) {
+        if (slot.cacheId == -1) {
+            cache.beginCache();
+        } else {
+            // Redefinition keeps the same id and needs the same number of
+            // sprites it was first built with. Every chunk adds exactly
+            // TILES_PER_CHUNK, so any slot can hold any chunk.
+            cache.beginCache(slot.cacheId);
+        }
+
+        int x0 = cx * TileEngine.CHUNK_SIZE;
+        int y0 = cy * TileEngine.CHUNK_SIZE;
+
+        for (int y = y0; y < y0 + TileEngine.CHUNK_SIZE; y++) {
+            for (int x = x0; x < x0 + TileEngine.CHUNK_SIZE; x++) {
+                if (engine.inBounds(x, y)) {
+                    TileType type = TileType.fromId(engine.getTile(x, y));
+                    cache.add(Assets.tile(type.row, type.col), x * TileEngine.TILE_SIZE, y * TileEngine.TILE_SIZE);
+                } else {
+                    // Past the map edge: a zero-sized quad just to keep the
+                    // count, from the tilesheet so the entry stays one texture
+                    cache.add(Assets.tile(TileType.DIRT.row, TileType.DIRT.col),
+                        x * TileEngine.TILE_SIZE, y * TileEngine.TILE_SIZE, 0, 0);
+                }
+            }
+        }
+
+        slot.cacheId = cache.endCache();
+    }
+
+    @Override
+    public void dispose() {
+        if (cache != null) cache.dispose();
+    }
+}
@@ -0,0 +1,42 @@
+package dev.lmcginnisno1.ironfall.render;
+
+import com.badlogic.gdx.graphics.OrthographicCamera;
+import dev.lmcginnisno1.ironfall.tiles.TileEngine;
+
+/**
+ * The range of tiles the world camera can currently see, plus a margin,
+ * clamped to the map. Computed once per frame and shared by every world
+ * draw pass so terrain, buildings and belt items all cull the same way.
+ */
+public class ViewBounds {
+
+    // Must be at least the largest building footprint minus one (the 4x4
+    // Core), so a building whose origin tile is just off-screen but whose
+    // body is visible is still inside the scanned range.
+    public static final int MARGIN = 4;
+
+    // Inclusive tile range. Empty (minX > maxX) when the camera is off the map.
+    public int minX, minY, maxX, maxY;
+
+    public void update(OrthographicCamera camera, int worldWidth, int worldHeight) {
+        float halfW = camera.viewportWidth * camera.zoom * 0.5f;
+        float halfH = camera.viewportHeight * camera.zoom * 0.5f;
+
+        minX = Math.max(0, (int) Math.floor((camera.position.x - halfW) / TileEngine.TILE_SIZE) - MARGIN);
+        minY = Math.max(0, (int) Math.floor((camera.position.y - halfH) / TileEngine.TILE_SIZE) - MARGIN);
+        maxX = Math.min(worldWidth - 1, (int) Math.floor((camera.position.x + halfW) / TileEngine.TILE_SIZE) + MARGIN);
+        maxY = Math.min(worldHeight - 1, (int) Math.floor((camera.position.y + halfH) / TileEngine.TILE_SIZE) + MARGIN);
+    }
+
+    public boolean isEmpty() {
+        return minX > maxX || minY > maxY;
+    }
+
+    public boolean contains(int x, int y) {
+        return x >= minX && x <= maxX && y >= minY && y <= maxY;
+    }
+
+    public boolean overlaps(int x, int y, int w, int h) {
+        return x <= maxX && x + w - 1 >= minX && y <= maxY && y + h - 1 >= minY;
+    }
+}
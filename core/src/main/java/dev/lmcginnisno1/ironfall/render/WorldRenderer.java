@@ -1,58 +1,232 @@
 package dev.lmcginnisno1.ironfall.render;
 
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Disposable;
 import dev.lmcginnisno1.ironfall.buildings.Conveyor;
+import dev.lmcginnisno1.ironfall.buildings.TransportLine;
+import dev.lmcginnisno1.ironfall.game.SimulationClock;
 import dev.lmcginnisno1.ironfall.tiles.Assets;
 import dev.lmcginnisno1.ironfall.IronfallGame;
 import dev.lmcginnisno1.ironfall.tiles.TileEngine;
 import dev.lmcginnisno1.ironfall.buildings.BuildingManager;
 
-public class WorldRenderer {
+public class WorldRenderer implements Disposable {
+
+    // From this zoom out a tile is 8 px or less: the world is drawn from the
+    // MapTexture instead, one quad per chunk, and belt items are left out.
+    // So is any view with more chunks than TerrainCache.MAX_VISIBLE (a big
+    // enough window short of this zoom), which keeps its SpriteCache bounded.
+    public static final float MAP_ZOOM = 2f;
+
+    // The minimap shows up to MINIMAP_CHUNKS chunks a side around the camera
+    // (all of a smaller map), fitted into MINIMAP_SIZE px in the corner
+    private static final int MINIMAP_CHUNKS = 16;
+    private static final int MINIMAP_SIZE = 192;
+    private static final int MINIMAP_MARGIN = 16;
 
     private final IronfallGame game;
     private final TileEngine tiles;
     private final BuildingManager buildings;
 
+    private final TerrainCache terrainCache;
+    private final MapTexture map;
+
+    private boolean farView = false;
+    private int miniCx0, miniCy0, miniCx1, miniCy1;
+
+    // Null without GL30, in which case items go through the SpriteBatch
+    private final InstancedItemRenderer instancedItems;
+
+    private final ViewBounds view = new ViewBounds();
+
+    // How far the belt sprites have scrolled, in tiles (0 to 1), and the
+    // simulated time that was at
+    private float beltPhase = 0f;
+    private double beltTime = -1;
+
+    // Lines with items near the camera, refilled each frame
+    private final Array<TransportLine> visibleLines = new Array<>();
+
     public WorldRenderer(IronfallGame game, TileEngine tiles, BuildingManager buildings) {
         this.game = game;
         this.tiles = tiles;
         this.buildings = buildings;
+        this.terrainCache = new TerrainCache(tiles);
+        this.map = new MapTexture(tiles, buildings);
+        this.instancedItems = InstancedItemRenderer.create();
+    }
+
+    // Call once per frame after the camera has been updated, before any of
+    // the draw passes below.
+    public void updateView() {
+        view.update(game.camera, tiles.getWidth(), tiles.getHeight());
+        farView = game.camera.zoom >= MAP_ZOOM || visibleChunks() > TerrainCache.MAX_VISIBLE;
+        updateMap();
+    }
+
+    private int visibleChunks() {
+        if (view.isEmpty()) return 0;
+        int cx0 = view.minX / TileEngine.CHUNK_SIZE, cx1 = view.maxX / TileEngine.CHUNK_SIZE;
+        int cy0 = view.minY / TileEngine.CHUNK_SIZE, cy1 = view.maxY / TileEngine.CHUNK_SIZE;
+        return (cx1 - cx0 + 1) * (cy1 - cy0 + 1);
+    }
+
+    // Redraws whatever changed in the chunks the minimap, and in a far view
+    // the world, are about to show. Before any batch starts.
+    private void updateMap() {
+        int chunksX = tiles.getChunksX();
+        int chunksY = tiles.getChunksY();
+        int spanX = Math.min(chunksX, MINIMAP_CHUNKS);
+        int spanY = Math.min(chunksY, MINIMAP_CHUNKS);
+
+        int camCx = (int) (game.camera.position.x / TileEngine.TILE_SIZE) / TileEngine.CHUNK_SIZE;
+        int camCy = (int) (game.camera.position.y / TileEngine.TILE_SIZE) / TileEngine.CHUNK_SIZE;
+        miniCx0 = Math.max(0, Math.min(camCx - spanX / 2, chunksX - spanX));
+        miniCy0 = Math.max(0, Math.min(camCy - spanY / 2, chunksY - spanY));
+        miniCx1 = miniCx0 + spanX - 1;
+        miniCy1 = miniCy0 + spanY - 1;
+
+        boolean world = farView && !view.isEmpty();
+        int cx0 = view.minX / TileEngine.CHUNK_SIZE, cx1 = view.maxX / TileEngine.CHUNK_SIZE;
+        int cy0 = view.minY / TileEngine.CHUNK_SIZE, cy1 = view.maxY / TileEngine.CHUNK_SIZE;
+
+        map.beginFrame(spanX * spanY + (world ? (cx1 - cx0 + 1) * (cy1 - cy0 + 1) : 0));
+        map.update(miniCx0, miniCy0, miniCx1, miniCy1);
+        if (world) map.update(cx0, cy0, cx1, cy1);
+    }
+
+    public ViewBounds getView() {
+        return view;
+    }
+
+    // Draws through the chunk cache rather than a SpriteBatch, so this must be
+    // called outside of any batch.begin()/end() pair. Only chunks overlapping
+    // the view are rebuilt or drawn.
+    public void renderTerrain() {
+        if (farView) return; // drawn with the buildings from the map in render()
+        terrainCache.render(game.camera.combined, view);
     }
 
     public void render(SpriteBatch batch) {
-        tiles.render(batch);
+        if (farView) {
+            renderMap(batch);
+            return;
+        }
+
+        animateBelts();
+        buildings.render(batch, view);
 
-        buildings.render(batch);
-        renderConveyorItems(batch);
+        if (instancedItems != null) {
+            // The instanced draw has its own shader and mesh, so the batch
+            // has to flush what it has and pick up again afterwards
+            batch.end();
+            renderInstancedItems();
+            batch.begin();
+        } else {
+            renderConveyorItems(batch);
+        }
 
         if (game.showGrid) {
             drawGrid(batch);
         }
     }
 
+    private void renderMap(SpriteBatch batch) {
+        if (view.isEmpty()) return;
+
+        float size = TileEngine.CHUNK_SIZE * TileEngine.TILE_SIZE;
+        for (int cy = view.minY / TileEngine.CHUNK_SIZE; cy <= view.maxY / TileEngine.CHUNK_SIZE; cy++) {
+            for (int cx = view.minX / TileEngine.CHUNK_SIZE; cx <= view.maxX / TileEngine.CHUNK_SIZE; cx++) {
+                TextureRegion chunk = map.get(cx, cy);
+                if (chunk != null) batch.draw(chunk, cx * size, cy * size, size, size);
+            }
+        }
+    }
+
+    /** Draws the minimap in the bottom-right corner; call with the HUD projection set. */
+    public void renderMinimap(SpriteBatch batch) {
+        int spanX = miniCx1 - miniCx0 + 1;
+        int spanY = miniCy1 - miniCy0 + 1;
+        float scale = (float) MINIMAP_SIZE / Math.max(spanX, spanY); // px per chunk
+        float w = spanX * scale;
+        float h = spanY * scale;
+        float left = game.screenWidth - MINIMAP_MARGIN - w;
+        float bottom = MINIMAP_MARGIN;
+
+        batch.setColor(0f, 0f, 0f, 0.6f);
+        batch.draw(Assets.whitePixel, left - 2, bottom - 2, w + 4, h + 4);
+        batch.setColor(Color.WHITE);
+
+        for (int cy = miniCy0; cy <= miniCy1; cy++) {
+            for (int cx = miniCx0; cx <= miniCx1; cx++) {
+                TextureRegion chunk = map.get(cx, cy);
+                if (chunk != null) batch.draw(chunk, left + (cx - miniCx0) * scale, bottom + (cy - miniCy0) * scale, scale, scale);
+            }
+        }
+
+        // What the camera sees, clipped to the minimap
+        float pxPerUnit = scale / (TileEngine.CHUNK_SIZE * TileEngine.TILE_SIZE);
+        float originX = miniCx0 * TileEngine.CHUNK_SIZE * TileEngine.TILE_SIZE;
+        float originY = miniCy0 * TileEngine.CHUNK_SIZE * TileEngine.TILE_SIZE;
+        float halfW = game.camera.viewportWidth * game.camera.zoom * 0.5f;
+        float halfH = game.camera.viewportHeight * game.camera.zoom * 0.5f;
+
+        float x0 = Math.max(left, left + (game.camera.position.x - halfW - originX) * pxPerUnit);
+        float y0 = Math.max(bottom, bottom + (game.camera.position.y - halfH - originY) * pxPerUnit);
+        float x1 = Math.min(left + w, left + (game.camera.position.x + halfW - originX) * pxPerUnit);
+        float y1 = Math.min(bottom + h, bottom + (game.camera.position.y + halfH - originY) * pxPerUnit);
+        if (x0 >= x1 || y0 >= y1) return;
+
+        batch.draw(Assets.whitePixel, x0, y0, x1 - x0, 1);
+        batch.draw(Assets.whitePixel, x0, y1 - 1, x1 - x0, 1);
+        batch.draw(Assets.whitePixel, x0, y0, 1, y1 - y0);
+        batch.draw(Assets.whitePixel, x1 - 1, y0, 1, y1 - y0);
+    }
+
+    // Belts scroll with simulated time, so they keep pace with the items
+    // under time warp and after belt upgrades, and stop if the clock does
+    private void animateBelts() {
+        SimulationClock clock = game.sim.clock;
+        double time = (clock.getTick() + clock.alpha()) * SimulationClock.TICK_SECONDS;
+
+        if (beltTime >= 0) {
+            double moved = (time - beltTime) * Conveyor.tilesPerSecond(buildings.getUpgrades());
+            beltPhase = (float) ((beltPhase + moved) % 1.0);
+        }
+        beltTime = time;
+
+        Assets.scrollBelts(beltPhase);
+    }
+
     private void drawGrid(SpriteBatch batch) {
+        if (view.isEmpty()) return;
+
         batch.setColor(1f, 1f, 1f, 0.1f);
 
-        int w = tiles.getWidth();
-        int h = tiles.getHeight();
+        int x0 = view.minX;
+        int y0 = view.minY;
+        int x1 = view.maxX + 1;
+        int y1 = view.maxY + 1;
 
-        for (int x = 0; x <= w; x++) {
+        for (int x = x0; x <= x1; x++) {
             batch.draw(
                 Assets.whitePixel,
                 x * 16,
-                0,
+                y0 * 16,
                 1,
-                h * 16
+                (y1 - y0) * 16
             );
         }
 
-        for (int y = 0; y <= h; y++) {
+        for (int y = y0; y <= y1; y++) {
             batch.draw(
                 Assets.whitePixel,
-                0,
+                x0 * 16,
                 y * 16,
-                w * 16,
+                (x1 - x0) * 16,
                 1
             );
         }
@@ -60,39 +234,63 @@ public class WorldRenderer {
         batch.setColor(Color.WHITE);
     }
 
+    private void renderInstancedItems() {
+        if (view.isEmpty()) return;
+
+        visibleLines.clear();
+        buildings.getTransportLinesInView(view, visibleLines);
+
+        instancedItems.render(game.camera.combined, view, visibleLines, game.sim.clock.getTick(), game.sim.clock.alpha());
+    }
+
+    // GLES2 fallback: one batch.draw per item, interpolated here
     private void renderConveyorItems(SpriteBatch batch) {
-        int w = tiles.getWidth();
-        int h = tiles.getHeight();
+        if (view.isEmpty()) return;
+
+        // Where between the last two simulation ticks this frame falls
+        float alpha = game.sim.clock.alpha();
 
-        for (int y = 0; y < h; y++) {
-            for (int x = 0; x < w; x++) {
+        visibleLines.clear();
+        buildings.getTransportLinesInView(view, visibleLines);
 
-                var b = buildings.getAt(x, y);
-                if (!(b instanceof Conveyor c)) continue;
+        for (int l = 0; l < visibleLines.size; l++) {
+            TransportLine line = visibleLines.get(l);
+            if (line.maxX < view.minX || line.minX > view.maxX || line.maxY < view.minY || line.minY > view.maxY) continue;
 
-                var list = c.getItems();
-                if (list == null || list.size == 0) continue;
+            int length = line.getLength();
+            float d = 0f;
 
-                float baseX = x * TileEngine.TILE_SIZE;
-                float baseY = y * TileEngine.TILE_SIZE;
+            for (int i = 0; i < line.getItemCount(); i++) {
+                d += line.getGap(i);
 
-                for (var m : list) {
-                    var type = m.item.type();
-                    var sprite = tiles.getRegion(type.row, type.col);
+                // Distance from the start of the line, backed off by however
+                // much of the last tick's move this frame hasn't reached yet
+                float pos = length - d - line.getLastMove(i) * (1f - alpha);
+                int index = Math.max(0, Math.min((int) Math.floor(pos), length - 1));
+                float p = pos - index;
 
-                    float p = m.progress;
-                    float ox = 0f, oy = 0f;
+                Conveyor c = line.getConveyor(index);
+                if (!view.contains(c.x, c.y)) continue;
 
-                    switch (c.direction) {
-                        case UP -> oy = TileEngine.TILE_SIZE * p;
-                        case DOWN -> oy = -TileEngine.TILE_SIZE * p;
-                        case LEFT -> ox = -TileEngine.TILE_SIZE * p;
-                        case RIGHT -> ox = TileEngine.TILE_SIZE * p;
-                    }
+                var type = line.getItemType(i);
+                var sprite = Assets.tile(type.row, type.col);
 
-                    batch.draw(sprite, baseX + ox, baseY + oy);
-                }
+                float baseX = c.x * TileEngine.TILE_SIZE;
+                float baseY = c.y * TileEngine.TILE_SIZE;
+
+                batch.draw(
+                    sprite,
+                    baseX + c.direction.dx * TileEngine.TILE_SIZE * p,
+                    baseY + c.direction.dy * TileEngine.TILE_SIZE * p
+                );
             }
         }
     }
+
+    @Override
+    public void dispose() {
+        terrainCache.dispose();
+        map.dispose();
+        if (instancedItems != null) instancedItems.dispose();
+    }
 }
@@ -0,0 +1,104 @@
+package dev.lmcginnisno1.ironfall.save;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.utils.Disposable;
+
+import java.io.File;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+/**
+ * Saves every INTERVAL seconds without holding up the frame. The render
+ * thread only takes a SaveSnapshot, between ticks; encoding, compressing and
+ * swapping the file in happen on a background thread. If the previous save
+ * is still being written when the next is due, it waits for a later frame
+ * rather than queueing up.
+ *
+ * Writes go through a SaveLog, so most saves only append what changed.
+ */
+public class Autosave implements Disposable {
+
+    public static final float INTERVAL = 60f;
+
+    private final File file;
+    private final SaveLog log;
+    private final Supplier<SaveGame> state;
+
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "autosave");
+        t.setDaemon(true);
+        return t;
+    });
+    private Future<?> pending;
+    private float sinceSave = 0f;
+
+    /** state is asked for the game as it is now each time a save is taken. */
+    public Autosave(File file, Supplier<SaveGame> state) {
+        this.file = file;
+        this.log = new SaveLog(file);
+        this.state = state;
+    }
+
+    /** Call once a frame, after the frame's ticks have run. */
+    public void update(float delta) {
+        sinceSave += delta;
+        if (sinceSave < INTERVAL || isWriting()) return;
+
+        sinceSave = 0f;
+        long start = System.nanoTime();
+        SaveSnapshot snapshot = SaveSnapshot.capture(state.get());
+        long snapshotNanos = System.nanoTime() - start;
+
+        pending = writer.submit(() -> {
+            long writeStart = System.nanoTime();
+            long written = write(snapshot);
+            if (written >= 0) {
+                Gdx.app.log("Save", String.format("Autosaved %.1f KB (snapshot %.2f ms on the render thread, written in %.0f ms)",
+                    written / 1024.0, snapshotNanos / 1e6, (System.nanoTime() - writeStart) / 1e6));
+            }
+        });
+    }
+
+    /** Saves right away and waits for it to be on disk, e.g. when the app is paused or closing. */
+    public void saveNow() {
+        finishPending();
+        sinceSave = 0f;
+        write(SaveSnapshot.capture(state.get()));
+    }
+
+    private boolean isWriting() {
+        return pending != null && !pending.isDone();
+    }
+
+    // Bytes written, or -1 if it failed
+    private long write(SaveSnapshot snapshot) {
+        try {
+            return log.write(snapshot);
+        } catch (Exception e) {
+            Gdx.app.error("Save", "Couldn't save to " + file, e);
+            return -1;
+        }
+    }
+
+    private void finishPending() {
+        if (pending == null) return;
+        try {
+            pending.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            // write() logs its own failures
+        }
+        pending = null;
+    }
+
+    /** Finishes any save in progress; doesn't take a new one. */
+    @Override
+    public void dispose() {
+        finishPending();
+        writer.shutdown();
+    }
+}
@@ -0,0 +1,628 @@
+package dev.lmcginnisno1.ironfall.save;
+
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.ByteArray;
+import com.badlogic.gdx.utils.FloatArray;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.LongMap;
+import dev.lmcginnisno1.ironfall.buildings.BasicMiner;
+import dev.lmcginnisno1.ironfall.buildings.Building;
+import dev.lmcginnisno1.ironfall.buildings.BuildingManager;
+import dev.lmcginnisno1.ironfall.buildings.Conveyor;
+import dev.lmcginnisno1.ironfall.buildings.Core;
+import dev.lmcginnisno1.ironfall.buildings.TransportLine;
+import dev.lmcginnisno1.ironfall.game.Upgrades;
+import dev.lmcginnisno1.ironfall.items.ItemType;
+import dev.lmcginnisno1.ironfall.tiles.ChunkSnapshot;
+import dev.lmcginnisno1.ironfall.tiles.TileEngine;
+import dev.lmcginnisno1.ironfall.worldgen.WorldGenerator;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * The binary save format. A save is a small fixed header followed by a log
+ * of segments, each holding records for some set of 32x32 chunks; a chunk's
+ * newest record wins:
+ *
+ *   header    MAGIC, VERSION, seed, width, height, streaming flag
+ *   segment   SEGMENT, body length, body, CRC32 of the body
+ *   body      tick, wall-clock time saved (ms since the epoch), credits, the
+ *             three upgrade levels, record count, then
+ *             per record: cx, cy, raw length, deflated length, deflated bytes
+ *
+ * A compacted file is one segment with a record for every chunk that has
+ * anything worth keeping. SaveLog then appends a segment per autosave with
+ * just the chunks that changed; a chunk that was emptied gets an empty record
+ * so it replaces the old one. Game-wide state (tick, credits, upgrades) comes
+ * from the last segment. A segment cut short by a crash fails its CRC and is
+ * ignored, along with anything after it.
+ *
+ * A record holds the chunk's tiles if the chunk was edited (terrain straight
+ * from the generator is rebuilt from the seed instead), then every building
+ * whose origin is in the chunk, then, on each conveyor, the items sitting on
+ * that tile: type, how far into the tile, and the gap to the item ahead as
+ * the line had it, since a gap worked back out of two positions is only
+ * close. Records don't depend on each other, so loading reads the file,
+ * finds the newest record per chunk and inflates them all in parallel; only
+ * putting the buildings back is sequential. Everything is big-endian.
+ *
+ * Compacting writes a temporary file that then replaces the old save, so a
+ * crash mid-save leaves the previous one intact.
+ */
+public final class SaveFile {
+
+    static final int MAGIC = 0x4952464C; // "IRFL"
+    static final int VERSION = 4;
+
+    // Older versions still read, and rewritten as the current one on the
+    // first autosave: without each belt item's exact gap (gaps are worked
+    // out from positions instead), and also without the time saved
+    private static final int VERSION_UNGAPPED = 3;
+    private static final int VERSION_UNTIMED = 2;
+
+    private static final int SEGMENT = 0x5345474D; // "SEGM"
+
+    // Sizes in the file: the header, a segment's framing (marker, body
+    // length, CRC) and each record's cx, cy, raw and deflated lengths
+    static final int HEADER_SIZE = 4 + 4 + 8 + 4 + 4 + 1;
+    private static final int SEGMENT_OVERHEAD = 4 + 4 + 4;
+    private static final int RECORD_HEADER = 4 * 4;
+
+    // Building kinds
+    private static final byte CORE = 0;
+    private static final byte CONVEYOR = 1;
+    private static final byte BASIC_MINER = 2;
+
+    private static final int FLAG_TILES = 1;
+
+    static final int CHUNK_SHIFT = 5;
+    private static final int CHUNK_MASK = TileEngine.CHUNK_SIZE - 1;
+
+    private static final ItemType[] ITEM_TYPES = ItemType.values();
+    private static final Conveyor.Direction[] DIRECTIONS = Conveyor.Direction.values();
+
+    private SaveFile() {
+    }
+
+    // --- Writing ---
+
+    /** Snapshots the game and writes it as a fresh file, all on the calling thread. */
+    public static void write(File file, SaveGame game) throws IOException {
+        write(file, SaveSnapshot.capture(game));
+    }
+
+    /** Writes a snapshot as a fresh, fully compacted file. Safe on any thread. */
+    public static void write(File file, SaveSnapshot snapshot) throws IOException {
+        writeCompacted(file, encodeSegment(snapshot, true), snapshot);
+    }
+
+    /** One segment, framed and ready to go on the end of a file. */
+    static final class Segment {
+        final byte[] bytes;
+
+        // Which chunks it has records for, and each record's size in the file
+        final long[] keys;
+        final int[] recordBytes;
+
+        Segment(byte[] bytes, long[] keys, int[] recordBytes) {
+            this.bytes = bytes;
+            this.keys = keys;
+            this.recordBytes = recordBytes;
+        }
+    }
+
+    /**
+     * Encodes a segment holding every chunk that has anything in it (full),
+     * or just the chunks the snapshot says changed. A changed chunk that's
+     * now empty still gets a record, so it replaces what was there before.
+     */
+    static Segment encodeSegment(SaveSnapshot snapshot, boolean full) {
+        LongMap<OutRecord> byChunk = new LongMap<>();
+        if (!full) {
+            for (long key : snapshot.changedChunks()) byChunk.put(key, new OutRecord((int) key, (int) (key >>> 32)));
+        }
+        for (ChunkSnapshot chunk : snapshot.chunks) {
+            OutRecord record = full ? recordFor(byChunk, chunk.cx, chunk.cy) : byChunk.get(chunkKey(chunk.cx, chunk.cy));
+            if (record != null) record.tiles = chunk;
+        }
+        for (int i = 0; i < snapshot.buildings.size(); i++) {
+            Building b = snapshot.buildings.get(i);
+            int cx = b.x >> CHUNK_SHIFT;
+            int cy = b.y >> CHUNK_SHIFT;
+            OutRecord record = full ? recordFor(byChunk, cx, cy) : byChunk.get(chunkKey(cx, cy));
+            if (record != null) record.buildings.add(i);
+        }
+
+        // Records in (cy, cx) order
+        long[] keys = byChunk.keys().toArray().toArray();
+        Arrays.sort(keys);
+
+        IdentityHashMap<Conveyor, BeltItems> items = collectBeltItems(snapshot);
+
+        // Everything here reads the snapshot, never the live game, so records
+        // can be encoded and compressed side by side
+        byte[][] raw = new byte[keys.length][];
+        byte[][] packed = new byte[keys.length][];
+        IntStream.range(0, keys.length).parallel().forEach(r -> {
+            raw[r] = encodeRecord(snapshot, byChunk.get(keys[r]), items);
+            packed[r] = deflate(raw[r]);
+        });
+
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(body);
+        int[] recordBytes = new int[keys.length];
+        try {
+            out.writeLong(snapshot.tick);
+            out.writeLong(snapshot.savedAt);
+            out.writeInt(snapshot.credits);
+            out.writeInt(snapshot.minerLevel);
+            out.writeInt(snapshot.beltLevel);
+            out.writeInt(snapshot.storageLevel);
+            out.writeInt(keys.length);
+
+            for (int r = 0; r < keys.length; r++) {
+                out.writeInt((int) keys[r]);
+                out.writeInt((int) (keys[r] >>> 32));
+                out.writeInt(raw[r].length);
+                out.writeInt(packed[r].length);
+                out.write(packed[r]);
+                recordBytes[r] = RECORD_HEADER + packed[r].length;
+            }
+            out.flush();
+        } catch (IOException e) {
+            // Only writing to memory, which doesn't throw
+            throw new IllegalStateException(e);
+        }
+
+        byte[] bodyBytes = body.toByteArray();
+        CRC32 crc = new CRC32();
+        crc.update(bodyBytes, 0, bodyBytes.length);
+
+        ByteBuffer framed = ByteBuffer.allocate(SEGMENT_OVERHEAD + bodyBytes.length);
+        framed.putInt(SEGMENT);
+        framed.putInt(bodyBytes.length);
+        framed.put(bodyBytes);
+        framed.putInt((int) crc.getValue());
+
+        return new Segment(framed.array(), keys, recordBytes);
+    }
+
+    /** Replaces file with the header and this one (full) segment. Returns the new file's length. */
+    static long writeCompacted(File file, Segment segment, SaveSnapshot snapshot) throws IOException {
+        File temp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(snapshot.seed);
+            out.writeInt(snapshot.width);
+            out.writeInt(snapshot.height);
+            out.writeBoolean(snapshot.streaming);
+            out.write(segment.bytes);
+        }
+
+        replace(temp, file);
+        return HEADER_SIZE + segment.bytes.length;
+    }
+
+    /**
+     * Writes a segment at offset, normally the end of the file. A crash
+     * part way through leaves a segment whose checksum doesn't match, which
+     * read() ignores along with anything after it.
+     */
+    static void append(File file, long offset, Segment segment) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(offset);
+            raf.write(segment.bytes);
+        }
+    }
+
+    // One atomic move, so there's never a moment without a save on disk.
+    // java.nio.file is API 26 on Android; below that the android module's
+    // desugared library (desugar_jdk_libs_nio) provides it.
+    private static void replace(File temp, File file) throws IOException {
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // What goes into one chunk's record: its tiles if edited, and the
+    // snapshot indices of the buildings whose origin is in it
+    private static final class OutRecord {
+        final int cx, cy;
+        ChunkSnapshot tiles;
+        final IntArray buildings = new IntArray();
+
+        OutRecord(int cx, int cy) {
+            this.cx = cx;
+            this.cy = cy;
+        }
+    }
+
+    private static OutRecord recordFor(LongMap<OutRecord> byChunk, int cx, int cy) {
+        long key = chunkKey(cx, cy);
+        OutRecord record = byChunk.get(key);
+        if (record == null) {
+            record = new OutRecord(cx, cy);
+            byChunk.put(key, record);
+        }
+        return record;
+    }
+
+    // Items on each conveyor, as (type, how far into the tile, gap to the
+    // item ahead)
+    private static final class BeltItems {
+        final ByteArray types = new ByteArray(4);
+        final FloatArray progress = new FloatArray(4);
+        final FloatArray gaps = new FloatArray(4);
+    }
+
+    // Same walk as TransportNetwork.dissolve(), over the snapshot's copies
+    private static IdentityHashMap<Conveyor, BeltItems> collectBeltItems(SaveSnapshot snapshot) {
+        IdentityHashMap<Conveyor, BeltItems> items = new IdentityHashMap<>();
+
+        for (int l = 0; l < snapshot.lines.length; l++) {
+            TransportLine line = snapshot.lines[l];
+            float d = 0f;
+            for (int i = snapshot.itemStart[l]; i < snapshot.itemStart[l + 1]; i++) {
+                d += snapshot.itemGaps[i];
+                float pos = line.getLength() - d;
+                int index = Math.min((int) pos, line.getLength() - 1);
+
+                Conveyor c = line.getConveyor(index);
+                BeltItems on = items.get(c);
+                if (on == null) {
+                    on = new BeltItems();
+                    items.put(c, on);
+                }
+                on.types.add(snapshot.itemTypes[i]);
+                on.progress.add(pos - index);
+                on.gaps.add(snapshot.itemGaps[i]);
+            }
+        }
+        return items;
+    }
+
+    private static byte[] encodeRecord(SaveSnapshot snapshot, OutRecord record, IdentityHashMap<Conveyor, BeltItems> items) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+
+        try {
+            out.writeByte(record.tiles != null ? FLAG_TILES : 0);
+            if (record.tiles != null) {
+                int[] tiles = new int[TileEngine.CHUNK_AREA];
+                record.tiles.getTiles(tiles);
+                for (int id : tiles) {
+                    // Read back signed, so EMPTY (-1) survives and real ids top out at 127
+                    if (id < Byte.MIN_VALUE || id > Byte.MAX_VALUE) throw new IllegalStateException("Tile id " + id + " doesn't fit a byte");
+                    out.writeByte(id);
+                }
+            }
+
+            out.writeShort(record.buildings.size);
+            for (int k = 0; k < record.buildings.size; k++) {
+                int i = record.buildings.get(k);
+                Building b = snapshot.buildings.get(i);
+
+                if (b instanceof Core) {
+                    out.writeByte(CORE);
+                    writeOrigin(out, b);
+                    out.writeByte(ITEM_TYPES.length);
+                    for (int v : snapshot.coreStock[i]) out.writeInt(v);
+                } else if (b instanceof Conveyor c) {
+                    out.writeByte(CONVEYOR);
+                    writeOrigin(out, b);
+                    out.writeByte(c.direction.ordinal());
+
+                    BeltItems on = items.get(c);
+                    int count = on == null ? 0 : on.types.size;
+                    out.writeByte(count);
+                    for (int n = 0; n < count; n++) {
+                        out.writeByte(on.types.get(n));
+                        out.writeFloat(on.progress.get(n));
+                        out.writeFloat(on.gaps.get(n));
+                    }
+                } else if (b instanceof BasicMiner) {
+                    out.writeByte(BASIC_MINER);
+                    writeOrigin(out, b);
+                    out.writeByte(snapshot.minerBuffers[i]);
+                    out.writeFloat(snapshot.minerTimers[i]);
+                } else {
+                    throw new IllegalStateException("Don't know how to save " + b.getClass().getSimpleName());
+                }
+            }
+            out.flush();
+        } catch (IOException e) {
+            // Only writing to memory, which doesn't throw
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void writeOrigin(DataOutputStream out, Building b) throws IOException {
+        out.writeByte(b.x & CHUNK_MASK);
+        out.writeByte(b.y & CHUNK_MASK);
+    }
+
+    private static byte[] deflate(byte[] raw) {
+        Deflater deflater = new Deflater();
+        deflater.setInput(raw);
+        deflater.finish();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 2 + 16);
+        byte[] buffer = new byte[4096];
+        while (!deflater.finished()) {
+            int n = deflater.deflate(buffer);
+            out.write(buffer, 0, n);
+        }
+        deflater.end();
+        return out.toByteArray();
+    }
+
+    // --- Reading ---
+
+    // One inflated record, decoded into plain values so it can be done off
+    // the main thread; buildings are only created once they're applied
+    private static final class InRecord {
+        int cx, cy;
+        int[] tiles;
+        final IntArray kinds = new IntArray();
+        final IntArray xs = new IntArray();
+        final IntArray ys = new IntArray();
+        final IntArray extras = new IntArray();     // conveyor direction, miner buffer (-1 = none)
+        final FloatArray timers = new FloatArray(); // miner timer, 0 otherwise
+        final IntArray itemCounts = new IntArray(); // per building; only conveyors have any
+        final ByteArray itemTypes = new ByteArray();
+        final FloatArray itemProgress = new FloatArray();
+        final FloatArray itemGaps = new FloatArray(); // NaN where the save predates them
+        final IntArray coreAmounts = new IntArray(); // amount, sale quantity per item type
+    }
+
+    public static SaveGame read(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r"); FileChannel channel = raf.getChannel()) {
+            // Read onto the heap rather than mapped: a mapping stays open until
+            // it's garbage collected, and on Windows that keeps the file from
+            // being replaced when SaveLog compacts it
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) throw new IOException(file + " is too big to be a save file");
+            ByteBuffer data = ByteBuffer.allocate((int) size);
+            while (data.hasRemaining()) {
+                if (channel.read(data) < 0) throw new IOException(file + " was cut short while reading");
+            }
+            data.flip();
+
+            if (data.getInt() != MAGIC) throw new IOException(file + " isn't a save file");
+            int version = data.getInt();
+            if (version != VERSION && version != VERSION_UNGAPPED && version != VERSION_UNTIMED) throw new IOException("Unsupported save version " + version);
+
+            long seed = data.getLong();
+            int width = data.getInt();
+            int height = data.getInt();
+            boolean streaming = data.get() != 0;
+
+            // Walk the segments, keeping the newest record for each chunk and
+            // the game state from the last segment that arrived whole
+            LongMap<Integer> newest = new LongMap<>();
+            long tick = 0, savedAt = 0;
+            int credits = 0, minerLevel = 0, beltLevel = 0, storageLevel = 0;
+            boolean any = false;
+
+            CRC32 crc = new CRC32();
+            while (data.remaining() >= SEGMENT_OVERHEAD && data.getInt(data.position()) == SEGMENT) {
+                int start = data.position();
+                int length = data.getInt(start + 4);
+                if (length < 0 || length > data.limit() - start - SEGMENT_OVERHEAD) break;
+
+                // CRC32.update(ByteBuffer) needs a newer Android than we target
+                byte[] bytes = new byte[length];
+                data.position(start + 8);
+                data.get(bytes);
+                crc.reset();
+                crc.update(bytes, 0, length);
+                if ((int) crc.getValue() != data.getInt()) break;
+
+                ByteBuffer body = ByteBuffer.wrap(bytes);
+
+                tick = body.getLong();
+                if (version != VERSION_UNTIMED) savedAt = body.getLong();
+                credits = body.getInt();
+                minerLevel = body.getInt();
+                beltLevel = body.getInt();
+                storageLevel = body.getInt();
+                int records = body.getInt();
+                for (int r = 0; r < records; r++) {
+                    int at = start + 8 + body.position();
+                    long key = chunkKey(body.getInt(), body.getInt());
+                    body.getInt();
+                    int packedLength = body.getInt();
+                    newest.put(key, at);
+                    body.position(body.position() + packedLength);
+                }
+
+                any = true;
+            }
+            if (!any) throw new IOException(file + " has no complete segments");
+
+            int recordCount = newest.size;
+            int[] offsets = new int[recordCount];
+            int n = 0;
+            for (LongMap.Entry<Integer> entry : newest.entries()) offsets[n++] = entry.value;
+            Arrays.sort(offsets); // keeps the restore order the same from run to run
+
+            InRecord[] records = new InRecord[recordCount];
+            IntStream.range(0, recordCount).parallel().forEach(r -> {
+                ByteBuffer slice = data.duplicate();
+                slice.position(offsets[r]);
+                int cx = slice.getInt();
+                int cy = slice.getInt();
+                int rawLength = slice.getInt();
+                byte[] packed = new byte[slice.getInt()];
+                slice.get(packed);
+
+                records[r] = decodeRecord(inflate(packed, rawLength), cx, cy, version == VERSION);
+            });
+
+            TileEngine engine = streaming
+                ? new TileEngine(width, height, WorldGenerator.chunkGenerator(seed, width, height))
+                : new TileEngine(width, height);
+            WorldGenerator.generateTerrain(engine, seed, ForkJoinPool.commonPool());
+            for (InRecord record : records) {
+                if (record.tiles != null) engine.restoreChunk(record.cx, record.cy, record.tiles);
+            }
+
+            BuildingManager buildings = new BuildingManager(width, height);
+            Upgrades upgrades = buildings.getUpgrades();
+            upgrades.minerSpeedLevel = minerLevel;
+            upgrades.beltSpeedLevel = beltLevel;
+            upgrades.storageCapacityLevel = storageLevel;
+
+            restoreBuildings(engine, buildings, records);
+
+            SaveGame game = new SaveGame(engine, buildings, seed, credits, tick);
+            game.savedAt = savedAt;
+            return game;
+        }
+    }
+
+    private static byte[] inflate(byte[] packed, int rawLength) {
+        Inflater inflater = new Inflater();
+        inflater.setInput(packed);
+
+        byte[] raw = new byte[rawLength];
+        try {
+            int at = 0;
+            while (at < rawLength && !inflater.finished()) {
+                int n = inflater.inflate(raw, at, rawLength - at);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) break;
+                at += n;
+            }
+            if (at != rawLength) throw new IllegalStateException("Truncated save record");
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupt save record", e);
+        } finally {
+            inflater.end();
+        }
+        return raw;
+    }
+
+    private static InRecord decodeRecord(byte[] raw, int cx, int cy, boolean gaps) {
+        ByteBuffer in = ByteBuffer.wrap(raw);
+        InRecord record = new InRecord();
+        record.cx = cx;
+        record.cy = cy;
+
+        int flags = in.get();
+        if ((flags & FLAG_TILES) != 0) {
+            record.tiles = new int[TileEngine.CHUNK_AREA];
+            for (int i = 0; i < record.tiles.length; i++) record.tiles[i] = in.get();
+        }
+
+        int x0 = cx << CHUNK_SHIFT;
+        int y0 = cy << CHUNK_SHIFT;
+
+        int count = in.getShort();
+        for (int i = 0; i < count; i++) {
+            int kind = in.get();
+            record.kinds.add(kind);
+            record.xs.add(x0 + in.get());
+            record.ys.add(y0 + in.get());
+
+            int items = 0;
+            switch (kind) {
+                case CORE -> {
+                    int types = in.get();
+                    for (int t = 0; t < types; t++) record.coreAmounts.add(in.getInt(), in.getInt());
+                    record.extras.add(types);
+                    record.timers.add(0f);
+                }
+                case CONVEYOR -> {
+                    record.extras.add(in.get());
+                    record.timers.add(0f);
+                    items = in.get();
+                    for (int k = 0; k < items; k++) {
+                        record.itemTypes.add(in.get());
+                        record.itemProgress.add(in.getFloat());
+                        record.itemGaps.add(gaps ? in.getFloat() : Float.NaN);
+                    }
+                }
+                case BASIC_MINER -> {
+                    record.extras.add(in.get());
+                    record.timers.add(in.getFloat());
+                }
+                default -> throw new IllegalStateException("Unknown building kind " + kind);
+            }
+            record.itemCounts.add(items);
+        }
+        return record;
+    }
+
+    private static void restoreBuildings(TileEngine engine, BuildingManager manager, InRecord[] records) {
+        ArrayList<Building> loaded = new ArrayList<>();
+        Array<Conveyor> itemTiles = new Array<>();
+        ByteArray itemTypes = new ByteArray();
+        FloatArray itemProgress = new FloatArray();
+        FloatArray itemGaps = new FloatArray();
+
+        for (InRecord record : records) {
+            int item = 0;
+            int coreAt = 0;
+
+            for (int i = 0; i < record.kinds.size; i++) {
+                int x = record.xs.get(i);
+                int y = record.ys.get(i);
+
+                switch (record.kinds.get(i)) {
+                    case CORE -> {
+                        Core core = new Core(x, y);
+                        int types = record.extras.get(i);
+                        for (int t = 0; t < types && t < ITEM_TYPES.length; t++) {
+                            core.restoreAmount(ITEM_TYPES[t], record.coreAmounts.get(coreAt + t * 2),
+                                record.coreAmounts.get(coreAt + t * 2 + 1));
+                        }
+                        coreAt += types * 2;
+                        loaded.add(core);
+                    }
+                    case CONVEYOR -> {
+                        Conveyor c = new Conveyor(x, y, DIRECTIONS[record.extras.get(i)]);
+                        for (int k = 0; k < record.itemCounts.get(i); k++, item++) {
+                            itemTiles.add(c);
+                            itemTypes.add(record.itemTypes.get(item));
+                            itemProgress.add(record.itemProgress.get(item));
+                            itemGaps.add(record.itemGaps.get(item));
+                        }
+                        loaded.add(c);
+                    }
+                    case BASIC_MINER -> {
+                        BasicMiner miner = new BasicMiner(x, y, engine);
+                        int buffer = record.extras.get(i);
+                        miner.restoreState(buffer < 0 ? null : ItemType.fromOrdinal(buffer), record.timers.get(i));
+                        loaded.add(miner);
+                    }
+                    default -> throw new IllegalStateException();
+                }
+            }
+        }
+
+        manager.restore(loaded, itemTiles, itemTypes, itemProgress, itemGaps);
+    }
+
+    static long chunkKey(int cx, int cy) {
+        return ((long) cy << 32) | (cx & 0xffffffffL);
+    }
+}
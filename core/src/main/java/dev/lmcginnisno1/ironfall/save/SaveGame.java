@@ -0,0 +1,33 @@
+package dev.lmcginnisno1.ironfall.save;
+
+import dev.lmcginnisno1.ironfall.buildings.BuildingManager;
+import dev.lmcginnisno1.ironfall.tiles.TileEngine;
+
+/**
+ * Everything a save holds: the map, the factory on it (which carries the
+ * Core's stock and the upgrade levels), and the bits of game state that
+ * live outside both. What SaveFile writes and what it reads back.
+ */
+public class SaveGame {
+
+    public final TileEngine engine;
+    public final BuildingManager buildings;
+
+    // Terrain nobody edited isn't stored, it's regenerated from this
+    public final long seed;
+
+    public int credits;
+    public long tick;
+
+    // When it was saved, in ms since the epoch; 0 if the save doesn't say.
+    // Only set on a save that was read back.
+    public long savedAt;
+
+    public SaveGame(TileEngine engine, BuildingManager buildings, long seed, int credits, long tick) {
+        this.engine = engine;
+        this.buildings = buildings;
+        this.seed = seed;
+        this.credits = credits;
+        this.tick = tick;
+    }
+}
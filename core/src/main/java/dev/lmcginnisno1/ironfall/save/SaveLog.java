@@ -0,0 +1,77 @@
+package dev.lmcginnisno1.ironfall.save;
+
+import com.badlogic.gdx.utils.LongMap;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * A save file kept up to date by appending. Each write() adds one segment
+ * holding only the chunks that changed since the last snapshot, so what a
+ * save costs in I/O follows how much of the factory is moving, not how big
+ * it is. Superseded records pile up behind the newest ones; once they make
+ * up most of the file, the next write rewrites it compacted instead.
+ *
+ * Not thread-safe, but doesn't need to be on any particular thread: Autosave
+ * only ever has one write going at a time.
+ */
+public class SaveLog {
+
+    // Compact once superseded records outweigh live ones and there are
+    // enough of them to be worth a rewrite
+    private static final long COMPACT_MIN_GARBAGE = 256 * 1024;
+
+    private final File file;
+
+    // Until we've written the file ourselves we don't know what's in it
+    // (or whether it's even there), so the first write always compacts
+    private boolean needsCompaction = true;
+
+    private long fileLength;
+    private long liveBytes;
+    private final LongMap<Integer> recordBytes = new LongMap<>();
+
+    public SaveLog(File file) {
+        this.file = file;
+    }
+
+    /** Brings the file up to date with snapshot. Returns how many bytes that wrote. */
+    public long write(SaveSnapshot snapshot) throws IOException {
+        long garbage = fileLength - SaveFile.HEADER_SIZE - liveBytes;
+        if (needsCompaction || (garbage > liveBytes && garbage > COMPACT_MIN_GARBAGE)) {
+            return compact(snapshot);
+        }
+
+        SaveFile.Segment segment = SaveFile.encodeSegment(snapshot, false);
+        try {
+            SaveFile.append(file, fileLength, segment);
+        } catch (IOException e) {
+            // Whatever made it to disk fails its checksum, but the changes
+            // this snapshot took are gone; only a full rewrite has them all
+            needsCompaction = true;
+            throw e;
+        }
+
+        fileLength += segment.bytes.length;
+        for (int r = 0; r < segment.keys.length; r++) {
+            Integer previous = recordBytes.put(segment.keys[r], segment.recordBytes[r]);
+            liveBytes += segment.recordBytes[r] - (previous == null ? 0 : previous);
+        }
+        return segment.bytes.length;
+    }
+
+    private long compact(SaveSnapshot snapshot) throws IOException {
+        SaveFile.Segment segment = SaveFile.encodeSegment(snapshot, true);
+        needsCompaction = true;
+        fileLength = SaveFile.writeCompacted(file, segment, snapshot);
+        needsCompaction = false;
+
+        recordBytes.clear();
+        liveBytes = 0;
+        for (int r = 0; r < segment.keys.length; r++) {
+            recordBytes.put(segment.keys[r], segment.recordBytes[r]);
+            liveBytes += segment.recordBytes[r];
+        }
+        return fileLength;
+    }
+}
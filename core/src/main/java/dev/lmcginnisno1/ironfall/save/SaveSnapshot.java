@@ -0,0 +1,171 @@
+package dev.lmcginnisno1.ironfall.save;
+
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.LongArray;
+import dev.lmcginnisno1.ironfall.buildings.BasicMiner;
+import dev.lmcginnisno1.ironfall.buildings.Building;
+import dev.lmcginnisno1.ironfall.buildings.BuildingManager;
+import dev.lmcginnisno1.ironfall.buildings.Conveyor;
+import dev.lmcginnisno1.ironfall.buildings.Core;
+import dev.lmcginnisno1.ironfall.buildings.TransportLine;
+import dev.lmcginnisno1.ironfall.game.Upgrades;
+import dev.lmcginnisno1.ironfall.items.ItemType;
+import dev.lmcginnisno1.ironfall.tiles.ChunkSnapshot;
+import dev.lmcginnisno1.ironfall.tiles.TileEngine;
+
+import java.util.ArrayList;
+
+/**
+ * A save's worth of game state frozen at one moment, so SaveFile can write it
+ * from another thread while the game carries on. Take it between ticks.
+ *
+ * Capturing copies as little as it can get away with. Edited terrain chunks
+ * and the building list are shared copy-on-write (see ChunkSnapshot and
+ * BuildingManager.shareBuildings()), so the map's size costs nothing here.
+ * Buildings and transport lines are shared as objects, but only their final
+ * fields (position, direction, a line's conveyors) are read later. Only the
+ * state that changes from tick to tick, belt items, miner progress and Core
+ * stock, is copied, into flat arrays; each line's items come out of its ring
+ * buffer in at most two array copies.
+ *
+ * Taking a snapshot also collects what changed since the previous one (see
+ * the takeChangedSinceSave() methods), for SaveLog to append just that.
+ * Those flags are cleared as they're read, so snapshots should all go to the
+ * same SaveLog.
+ */
+public final class SaveSnapshot {
+
+    private static final ItemType[] ITEM_TYPES = ItemType.values();
+
+    final long seed;
+    final int width, height;
+    final boolean streaming;
+    final int credits;
+    final long tick;
+    final long savedAt;
+    final int minerLevel, beltLevel, storageLevel;
+
+    final Array<ChunkSnapshot> chunks = new Array<>();
+
+    // What changed since the snapshot before this one: chunk keys (as
+    // SaveFile.chunkKey) and indices into lines. See changedChunks().
+    private final LongArray changedKeys = new LongArray();
+    private final IntArray changedLines = new IntArray();
+
+    // The manager's own list, shared copy-on-write
+    final ArrayList<Building> buildings;
+
+    // Indexed like buildings; each only meaningful for the kind that uses it
+    final byte[] minerBuffers;   // ItemType ordinal, -1 for none
+    final float[] minerTimers;
+    final int[][] coreStock;     // amount, sale quantity per item type
+
+    // Line l's items are itemTypes/itemGaps[itemStart[l] .. itemStart[l + 1])
+    final TransportLine[] lines;
+    final int[] itemStart;
+    final byte[] itemTypes;
+    final float[] itemGaps;
+
+    private SaveSnapshot(SaveGame game) {
+        TileEngine engine = game.engine;
+        BuildingManager manager = game.buildings;
+        Upgrades upgrades = manager.getUpgrades();
+
+        seed = game.seed;
+        width = engine.getWidth();
+        height = engine.getHeight();
+        streaming = engine.isStreaming();
+        credits = game.credits;
+        tick = game.tick;
+        savedAt = System.currentTimeMillis();
+        minerLevel = upgrades.minerSpeedLevel;
+        beltLevel = upgrades.beltSpeedLevel;
+        storageLevel = upgrades.storageCapacityLevel;
+
+        engine.snapshotEditedChunks(chunks);
+        for (ChunkSnapshot chunk : chunks) {
+            if (chunk.changed) changedKeys.add(SaveFile.chunkKey(chunk.cx, chunk.cy));
+        }
+
+        IntArray removed = new IntArray();
+        manager.takeRemovedSinceSave(removed);
+        for (int i = 0; i < removed.size; i += 2) {
+            changedKeys.add(keyAt(removed.get(i), removed.get(i + 1)));
+        }
+
+        buildings = manager.shareBuildings();
+        int count = buildings.size();
+        minerBuffers = new byte[count];
+        minerTimers = new float[count];
+        coreStock = new int[count][];
+        for (int i = 0; i < count; i++) {
+            Building b = buildings.get(i);
+            if (b.takeChangedSinceSave()) changedKeys.add(keyAt(b.x, b.y));
+
+            if (b instanceof BasicMiner miner) {
+                minerBuffers[i] = (byte) (miner.getBuffer() == null ? -1 : miner.getBuffer().ordinal());
+                minerTimers[i] = miner.getTimer();
+            } else if (b instanceof Core core) {
+                int[] stock = new int[ITEM_TYPES.length * 2];
+                for (ItemType type : ITEM_TYPES) {
+                    stock[type.ordinal() * 2] = core.getAmount(type);
+                    stock[type.ordinal() * 2 + 1] = core.getSaleQuantity(type);
+                }
+                coreStock[i] = stock;
+            }
+        }
+
+        ArrayList<TransportLine> live = manager.getTransportLines();
+        lines = live.toArray(new TransportLine[0]);
+        itemStart = new int[lines.length + 1];
+        for (int l = 0; l < lines.length; l++) {
+            itemStart[l + 1] = itemStart[l] + lines[l].getItemCount();
+        }
+        itemTypes = new byte[itemStart[lines.length]];
+        itemGaps = new float[itemStart[lines.length]];
+        for (int l = 0; l < lines.length; l++) {
+            lines[l].copyItems(itemTypes, itemGaps, itemStart[l]);
+            if (lines[l].takeChangedSinceSave()) changedLines.add(l);
+        }
+    }
+
+    /**
+     * Sorted keys of every chunk whose saved record went out of date since
+     * the snapshot before this one. Items are saved with the conveyor
+     * they're on, so a line that moved dirties every chunk it runs through;
+     * working those out is left to here, off the game thread.
+     */
+    long[] changedChunks() {
+        LongArray keys = new LongArray(changedKeys.size + changedLines.size * 4);
+        keys.addAll(changedKeys);
+
+        for (int n = 0; n < changedLines.size; n++) {
+            TransportLine line = lines[changedLines.get(n)];
+            long last = -1;
+            for (int i = 0; i < line.getLength(); i++) {
+                Conveyor c = line.getConveyor(i);
+                long key = keyAt(c.x, c.y);
+                if (key != last) keys.add(key);
+                last = key;
+            }
+        }
+
+        keys.sort();
+        int unique = 0;
+        for (int i = 0; i < keys.size; i++) {
+            if (unique == 0 || keys.items[i] != keys.items[unique - 1]) keys.items[unique++] = keys.items[i];
+        }
+        keys.size = unique;
+        return keys.toArray();
+    }
+
+    private static long keyAt(int x, int y) {
+        return SaveFile.chunkKey(x >> SaveFile.CHUNK_SHIFT, y >> SaveFile.CHUNK_SHIFT);
+    }
+
+    /** Call between ticks, on the thread that runs them. */
+    public static SaveSnapshot capture(SaveGame game) {
+        return new SaveSnapshot(game);
+    }
+}
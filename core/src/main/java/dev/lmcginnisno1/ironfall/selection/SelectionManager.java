@@ -2,6 +2,7 @@ package dev.lmcginnisno1.ironfall.selection;
 
 import com.badlogic.gdx.math.Rectangle;
 import com.badlogic.gdx.utils.Array;
+import dev.lmcginnisno1.ironfall.game.Command;
 import dev.lmcginnisno1.ironfall.game.GameMode;
 import dev.lmcginnisno1.ironfall.IronfallGame;
 import dev.lmcginnisno1.ironfall.buildings.Building;
@@ -47,12 +48,8 @@ public class SelectionManager {
 
     public void deleteSelected() {
         if (selected != null) {
-            if (buildings.remove(selected)) {
-                // Full credit refund, no resources returned, per design —
-                // this exists purely so a bad placement can't strand
-                // credits/resources permanently, not as an economy lever.
-                game.credits += selected.cost;
-            }
+            // Refunds the cost; see Command.Remove
+            game.sim.execute(new Command.Remove(selected.x, selected.y));
             selected = null;
         }
     }
@@ -95,9 +92,7 @@ public class SelectionManager {
 
     public void deleteMulti() {
         for (Building b : multi) {
-            if (buildings.remove(b)) {
-                game.credits += b.cost;
-            }
+            game.sim.execute(new Command.Remove(b.x, b.y));
         }
         multi.clear();
     }
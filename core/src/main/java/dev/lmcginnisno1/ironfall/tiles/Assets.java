@@ -1,41 +1,106 @@
 package dev.lmcginnisno1.ironfall.tiles;
 
-import com.badlogic.gdx.graphics.Color;
-import com.badlogic.gdx.graphics.Pixmap;
-import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.assets.AssetManager;
+import com.badlogic.gdx.graphics.g2d.TextureAtlas;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.utils.Array;
 
+/**
+ * Every sprite the game draws, from one atlas built by the packTextures
+ * Gradle task out of assets-raw/. One texture means terrain, buildings,
+ * belt items and the HUD never make the SpriteBatch flush to switch.
+ */
 public class Assets {
+
+    public static final String ATLAS = "atlas/ironfall.atlas";
+
+    private static final int PADDED_TILE_SIZE = 18; // 16 + 2 padding
+    private static final int CORE_TILE_SIZE = 16;   // actual tile inside padding
+
+    private static TextureRegion[][] tiles;
+
     public static TextureRegion conveyorUp;
     public static TextureRegion conveyorDown;
     public static TextureRegion conveyorLeft;
     public static TextureRegion conveyorRight;
+    // Placed belts draw these instead, switched to the right frame of the
+    // belt's scroll by scrollBelts(). The ones above stay still for the
+    // build menu and placement ghosts.
+    public static TextureRegion beltUp;
+    public static TextureRegion beltDown;
+    public static TextureRegion beltLeft;
+    public static TextureRegion beltRight;
     public static TextureRegion core;
     public static TextureRegion basicMiner;
     public static TextureRegion whitePixel;
 
+    // One frame per texel of scroll, made by packTextures
+    private static Array<TextureAtlas.AtlasRegion> beltUpFrames;
+    private static Array<TextureAtlas.AtlasRegion> beltDownFrames;
+    private static Array<TextureAtlas.AtlasRegion> beltLeftFrames;
+    private static Array<TextureAtlas.AtlasRegion> beltRightFrames;
+
+    /** Asks manager for the atlas. Call load() once it has finished. */
+    public static void queue(AssetManager manager) {
+        manager.load(ATLAS, TextureAtlas.class);
+    }
+
+    public static void load(AssetManager manager) {
+        TextureAtlas atlas = manager.get(ATLAS, TextureAtlas.class);
+
+        // The padded tilesheet is packed whole; slice it here
+        tiles = splitTilesheet(atlas.findRegion("tilesheet"));
+
+        conveyorUp = atlas.findRegion("conveyor_straight_up");
+        conveyorDown = atlas.findRegion("conveyor_straight_down");
+        conveyorLeft = atlas.findRegion("conveyor_straight_left");
+        conveyorRight = atlas.findRegion("conveyor_straight_right");
+        core = atlas.findRegion("core");
+        basicMiner = atlas.findRegion("miner");
+        whitePixel = atlas.findRegion("white");
+
+        beltUpFrames = atlas.findRegions("belt_up");
+        beltDownFrames = atlas.findRegions("belt_down");
+        beltLeftFrames = atlas.findRegions("belt_left");
+        beltRightFrames = atlas.findRegions("belt_right");
+        beltUp = new TextureRegion(beltUpFrames.first());
+        beltDown = new TextureRegion(beltDownFrames.first());
+        beltLeft = new TextureRegion(beltLeftFrames.first());
+        beltRight = new TextureRegion(beltRightFrames.first());
+    }
+
+    /**
+     * Shows the belt sprites scrolled phase of a tile (0 to 1) along their
+     * direction, to the nearest texel. Once per frame animates every belt on
+     * screen without touching any of them.
+     */
+    public static void scrollBelts(float phase) {
+        int frame = (int) (phase * beltUpFrames.size) % beltUpFrames.size;
+        beltUp.setRegion(beltUpFrames.get(frame));
+        beltDown.setRegion(beltDownFrames.get(frame));
+        beltLeft.setRegion(beltLeftFrames.get(frame));
+        beltRight.setRegion(beltRightFrames.get(frame));
+    }
+
+    private static TextureRegion[][] splitTilesheet(TextureRegion sheet) {
+        int rows = sheet.getRegionHeight() / PADDED_TILE_SIZE;
+        int cols = sheet.getRegionWidth() / PADDED_TILE_SIZE;
+
+        TextureRegion[][] out = new TextureRegion[rows][cols];
 
-    public static void load() {
-        conveyorUp = new TextureRegion(new Texture("buildings/conveyor_straight_up.png"));
-        conveyorDown = new TextureRegion(new Texture("buildings/conveyor_straight_down.png"));
-        conveyorLeft = new TextureRegion(new Texture("buildings/conveyor_straight_left.png"));
-        conveyorRight = new TextureRegion(new Texture("buildings/conveyor_straight_right.png"));
-        core = new TextureRegion(new Texture("buildings/core.png"));
-        basicMiner = new TextureRegion(new Texture("buildings/miner.png"));
+        for (int y = 0; y < rows; y++) {
+            for (int x = 0; x < cols; x++) {
+                int px = x * PADDED_TILE_SIZE;
+                int py = y * PADDED_TILE_SIZE;
+                out[y][x] = new TextureRegion(sheet, px + 1, py + 1, CORE_TILE_SIZE, CORE_TILE_SIZE);
+            }
+        }
 
-        Pixmap pm = new Pixmap(1, 1, Pixmap.Format.RGBA8888);
-        pm.setColor(Color.WHITE);
-        pm.fill();
-        whitePixel = new TextureRegion(new Texture(pm));
-        pm.dispose();
+        return out;
     }
 
-    public static void dispose(){
-        conveyorUp.getTexture().dispose();
-        conveyorDown.getTexture().dispose();
-        conveyorLeft.getTexture().dispose();
-        conveyorRight.getTexture().dispose();
-        core.getTexture().dispose();
-        whitePixel.getTexture().dispose();
+    /** Tilesheet cell for terrain (TileType) and item (ItemType) sprites. */
+    public static TextureRegion tile(int row, int col) {
+        return tiles[row][col];
     }
 }
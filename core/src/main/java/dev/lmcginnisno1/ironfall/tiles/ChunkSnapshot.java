@@ -0,0 +1,41 @@
+package dev.lmcginnisno1.ironfall.tiles;
+
+/**
+ * One chunk's tiles as they were when TileEngine.snapshotEditedChunks() was
+ * called. It shares the chunk's packed data instead of copying it; the chunk
+ * copies its data on the next edit instead (see TileChunk), so a snapshot can
+ * be read from any thread for as long as it's needed.
+ */
+public final class ChunkSnapshot {
+
+    public final int cx, cy;
+
+    // Whether the chunk was edited since the snapshot before this one
+    public final boolean changed;
+
+    private final int[] palette;
+    private final int bits;
+    private final byte[] data;
+
+    ChunkSnapshot(int cx, int cy, boolean changed, int[] palette, int bits, byte[] data) {
+        this.cx = cx;
+        this.cy = cy;
+        this.changed = changed;
+        this.palette = palette;
+        this.bits = bits;
+        this.data = data;
+    }
+
+    /** Copies every tile's id into out, laid out as in TileEngine.ChunkGenerator. */
+    public void getTiles(int[] out) {
+        for (int i = 0; i < TileEngine.CHUNK_AREA; i++) {
+            if (bits == 4) {
+                out[i] = palette[(data[i >> 1] >> ((i & 1) << 2)) & 0xF];
+            } else if (bits == 0) {
+                out[i] = palette[0];
+            } else {
+                out[i] = palette[data[i] & 0xFF];
+            }
+        }
+    }
+}
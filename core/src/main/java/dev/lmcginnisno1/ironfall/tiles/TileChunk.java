@@ -0,0 +1,160 @@
+package dev.lmcginnisno1.ironfall.tiles;
+
+/**
+ * One chunk of TileEngine's tiles, palette-compressed. Each tile is an
+ * index into a small per-chunk palette of tile ids, packed as tightly as the
+ * palette allows:
+ *
+ *   1 id:      no per-tile data at all, so an all-dirt chunk is just its palette
+ *   2-16 ids:  4 bits per tile, 512 bytes
+ *   17+ ids:   a byte per tile
+ *
+ * With the tile types we have, no chunk ever needs more than 4 bits; the
+ * byte form is there so adding tile types can't break anything. Palettes
+ * only grow, so a chunk that briefly held a tile keeps its entry for it.
+ */
+final class TileChunk {
+
+    private static final int AREA = TileEngine.CHUNK_AREA;
+
+    // 8-bit indices can't address more than this
+    private static final int MAX_PALETTE = 256;
+
+    final int cx, cy;
+
+    // Bumped whenever a tile inside changes. Render-side caches compare
+    // against these to find out what to rebuild, so TileEngine never has
+    // to know who is caching what.
+    int version;
+
+    // Set by TileEngine.setTile. Edited chunks can't be regenerated, so
+    // they're never evicted.
+    boolean edited;
+
+    // Set by TileEngine.setTile too, but cleared by each snapshot(), so
+    // autosave only rewrites chunks edited since the last one
+    boolean changedSinceSave;
+
+    // A ChunkSnapshot may still be reading data, so the next store copies it
+    // first. The palette needn't be: it's only ever appended to, past
+    // the end the snapshot reads.
+    private boolean shared;
+
+    // A new chunk is all id 0 (dirt), like the int[] it replaced
+    private int[] palette = new int[1];
+    private int paletteSize = 1;
+    private int bits = 0;
+    private byte[] data;
+
+    TileChunk(int cx, int cy) {
+        this.cx = cx;
+        this.cy = cy;
+    }
+
+    int get(int i) {
+        if (bits == 4) return palette[(data[i >> 1] >> ((i & 1) << 2)) & 0xF];
+        if (bits == 0) return palette[0];
+        return palette[data[i] & 0xFF];
+    }
+
+    /** Returns false if the tile already had that id. */
+    boolean set(int i, int id) {
+        if (get(i) == id) return false;
+        store(i, indexOf(id));
+        return true;
+    }
+
+    /** Replaces every tile, ids laid out as in TileEngine.ChunkGenerator. */
+    void setAll(int[] ids) {
+        palette = new int[4];
+        paletteSize = 0;
+        for (int i = 0; i < AREA; i++) {
+            if (find(ids[i]) < 0) append(ids[i]);
+        }
+
+        bits = bitsFor(paletteSize);
+        data = bits == 0 ? null : new byte[AREA * bits / 8];
+        shared = false;
+        if (bits == 0) return;
+
+        for (int i = 0; i < AREA; i++) store(i, find(ids[i]));
+    }
+
+    /** Freezes the current tiles; later edits copy rather than change what it reads. */
+    ChunkSnapshot snapshot() {
+        shared = data != null;
+        ChunkSnapshot snapshot = new ChunkSnapshot(cx, cy, changedSinceSave, palette, bits, data);
+        changedSinceSave = false;
+        return snapshot;
+    }
+
+    /** Roughly what this chunk's tiles cost in heap, for reporting. */
+    int sizeInBytes() {
+        return 4 * palette.length + (data == null ? 0 : data.length);
+    }
+
+    private int indexOf(int id) {
+        int index = find(id);
+        if (index >= 0) return index;
+
+        append(id);
+        int needed = bitsFor(paletteSize);
+        if (needed != bits) widen(needed);
+        return paletteSize - 1;
+    }
+
+    private int find(int id) {
+        for (int p = 0; p < paletteSize; p++) {
+            if (palette[p] == id) return p;
+        }
+        return -1;
+    }
+
+    private void append(int id) {
+        if (paletteSize == MAX_PALETTE) throw new IllegalStateException("More than " + MAX_PALETTE + " tile ids in one chunk");
+
+        if (paletteSize == palette.length) {
+            int[] grown = new int[palette.length * 2];
+            System.arraycopy(palette, 0, grown, 0, paletteSize);
+            palette = grown;
+        }
+        palette[paletteSize++] = id;
+    }
+
+    private static int bitsFor(int paletteSize) {
+        if (paletteSize == 1) return 0;
+        return paletteSize <= 16 ? 4 : 8;
+    }
+
+    // Repacks the existing indices at a wider size
+    private void widen(int newBits) {
+        int[] indices = new int[AREA];
+        if (bits != 0) {
+            for (int i = 0; i < AREA; i++) indices[i] = indexAt(i);
+        }
+
+        bits = newBits;
+        data = new byte[AREA * bits / 8];
+        shared = false;
+        for (int i = 0; i < AREA; i++) store(i, indices[i]);
+    }
+
+    private int indexAt(int i) {
+        if (bits == 4) return (data[i >> 1] >> ((i & 1) << 2)) & 0xF;
+        return data[i] & 0xFF;
+    }
+
+    private void store(int i, int index) {
+        if (shared) {
+            data = data.clone();
+            shared = false;
+        }
+
+        if (bits == 4) {
+            int shift = (i & 1) << 2;
+            data[i >> 1] = (byte) ((data[i >> 1] & ~(0xF << shift)) | (index << shift));
+        } else {
+            data[i] = (byte) index;
+        }
+    }
+}
@@ -1,107 +1,272 @@
 package dev.lmcginnisno1.ironfall.tiles;
 
-import com.badlogic.gdx.Gdx;
-import com.badlogic.gdx.graphics.Texture;
-import com.badlogic.gdx.graphics.g2d.SpriteBatch;
-import com.badlogic.gdx.graphics.g2d.TextureRegion;
-import com.badlogic.gdx.graphics.OrthographicCamera;
-import com.badlogic.gdx.math.Vector2;
-import com.badlogic.gdx.math.Vector3;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.LongMap;
 
-public class TileEngine {
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * The terrain grid. Pure data with no textures or GL state, so it works the
+ * same in the game and in headless runs; drawing it is WorldRenderer's job
+ * (via TerrainCache and Assets.tile()).
+ *
+ * Tiles live in CHUNK_SIZE x CHUNK_SIZE chunks, each a palette-compressed
+ * TileChunk of at most half a kilobyte (a uniform chunk is almost nothing),
+ * where a plain int per tile would be 4 KB. Chunks are held one of two ways:
+ *
+ *   fixed:     every chunk allocated up front in a flat array, filled by
+ *              WorldGenerator before play starts
+ *   streaming: chunks generated on demand from a ChunkGenerator and kept in
+ *              a map, so memory follows what's been explored and built on
+ *              rather than the world bounds. requestChunk() generates on a
+ *              background thread and installGenerated() picks the results
+ *              up; getTile() on a chunk that isn't there yet generates it
+ *              on the spot. Chunks nobody edited can be dropped again with
+ *              evictChunks() and come back identical later.
+ *
+ * A streaming engine belongs to the render thread: lookups cache the last
+ * chunk and the map isn't synchronized. A fixed engine can be read from any
+ * thread, and written in parallel as long as no two threads share a chunk.
+ */
+public class TileEngine implements Disposable {
 
     public static final int TILE_SIZE = 16;        // world tile size
-    public static final int PADDED_TILE_SIZE = 18; // 16 + 2 padding
-    public static final int CORE_TILE_SIZE = 16;   // actual tile inside padding
+    public static final int CHUNK_SIZE = 32;       // tiles per side of a terrain chunk
+
+    private static final int CHUNK_SHIFT = 5;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    public static final int CHUNK_AREA = CHUNK_SIZE * CHUNK_SIZE;
+
+    /** Fills a streamed chunk. Must be a pure function of (cx, cy). */
+    public interface ChunkGenerator {
+        // out[ly * CHUNK_SIZE + lx] is tile (cx * CHUNK_SIZE + lx, cy * CHUNK_SIZE + ly);
+        // entries past the edge of the map are ignored
+        void generate(int cx, int cy, int[] out);
+    }
+
+    /** Which loaded chunks evictChunks() should hold on to. */
+    public interface ChunkFilter {
+        boolean keep(int cx, int cy);
+    }
 
     private final int width;
     private final int height;
-    private final int[][] tiles;
+    private final int chunksX;
+    private final int chunksY;
 
-    private final Texture tilesheet;
-    private final TextureRegion[][] regions;
+    // Exactly one of these is non-null
+    private final TileChunk[] dense;
+    private final LongMap<TileChunk> loaded;
 
-    private final OrthographicCamera camera;
+    // Streaming only
+    private final ChunkGenerator generator;
+    private final LongMap<Boolean> pending = new LongMap<>();
+    private final ConcurrentLinkedQueue<TileChunk> generated = new ConcurrentLinkedQueue<>();
+    private final Array<TileChunk> evicting = new Array<>();
+    private ExecutorService worker;
+    private TileChunk last;
+    private final int[] scratch = new int[CHUNK_AREA];
 
+    // Streamed chunks take their starting version from here, so a chunk that
+    // was dropped and regenerated never matches what a cache built before
+    private int nextVersion = 1;
+
+    /** A fixed world with every chunk allocated. */
     public TileEngine(int width, int height) {
+        this(width, height, null);
+    }
+
+    /** A streaming world; generator fills each chunk the first time it's needed. */
+    public TileEngine(int width, int height, ChunkGenerator generator) {
         this.width = width;
         this.height = height;
-        this.tiles = new int[height][width];
+        this.chunksX = (width + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        this.chunksY = (height + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        this.generator = generator;
 
-        // Load padded tilesheet
-        tilesheet = new Texture("tiles/tilesheet.png");
-        tilesheet.setFilter(Texture.TextureFilter.Nearest, Texture.TextureFilter.Nearest);
+        if (generator == null) {
+            this.dense = new TileChunk[chunksX * chunksY];
+            this.loaded = null;
+            for (int cy = 0; cy < chunksY; cy++) {
+                for (int cx = 0; cx < chunksX; cx++) {
+                    dense[cy * chunksX + cx] = new TileChunk(cx, cy);
+                }
+            }
+        } else {
+            this.dense = null;
+            this.loaded = new LongMap<>();
+        }
+    }
 
-        // Slice padded tilesheet
-        regions = splitTilesheet(tilesheet);
+    public boolean isStreaming() {
+        return dense == null;
+    }
 
-        // Camera setup
-        camera = new OrthographicCamera();
-        camera.setToOrtho(false);   // no fixed viewport
+    public void setTile(int x, int y, int id) {
+        if (x >= 0 && x < width && y >= 0 && y < height) {
+            TileChunk chunk = chunkFor(x >> CHUNK_SHIFT, y >> CHUNK_SHIFT);
+            if (!chunk.set(((y & CHUNK_MASK) << CHUNK_SHIFT) | (x & CHUNK_MASK), id)) return;
+            chunk.version++;
+            chunk.edited = true;
+            chunk.changedSinceSave = true;
+        }
+    }
 
-        // Center camera on world
-        camera.position.set(width * TILE_SIZE / 2f, height * TILE_SIZE / 2f, 0);
-        camera.update();
+    public int getTile(int x, int y) {
+        if (x < 0 || x >= width || y < 0 || y >= height) {
+            return -1;
+        }
+        return chunkFor(x >> CHUNK_SHIFT, y >> CHUNK_SHIFT).get(((y & CHUNK_MASK) << CHUNK_SHIFT) | (x & CHUNK_MASK));
     }
 
-    private TextureRegion[][] splitTilesheet(Texture sheet) {
-        int rows = sheet.getHeight() / PADDED_TILE_SIZE;
-        int cols = sheet.getWidth() / PADDED_TILE_SIZE;
+    /**
+     * Replaces a whole chunk, laid out as in ChunkGenerator. Used to fill a
+     * fixed world in one pass per chunk; on a streaming world it installs a
+     * chunk generated elsewhere. Doesn't count as an edit.
+     */
+    public void setChunk(int cx, int cy, int[] tiles) {
+        TileChunk chunk;
+        if (dense != null) {
+            chunk = dense[cy * chunksX + cx];
+        } else {
+            chunk = loaded.get(chunkKey(cx, cy));
+            if (chunk == null) {
+                chunk = new TileChunk(cx, cy);
+                install(chunk);
+            }
+        }
 
-        TextureRegion[][] out = new TextureRegion[rows][cols];
+        chunk.setAll(tiles);
+        chunk.version++;
+    }
+
+    /**
+     * Loading a save: like setChunk(), but the chunk counts as edited, since
+     * its tiles came from the player rather than the generator.
+     */
+    public void restoreChunk(int cx, int cy, int[] tiles) {
+        setChunk(cx, cy, tiles);
+        chunkFor(cx, cy).edited = true;
+    }
 
-        for (int y = 0; y < rows; y++) {
-            for (int x = 0; x < cols; x++) {
-                int px = x * PADDED_TILE_SIZE;
-                int py = y * PADDED_TILE_SIZE;
-                out[y][x] = new TextureRegion(sheet, px + 1, py + 1, CORE_TILE_SIZE, CORE_TILE_SIZE);
+    /**
+     * Snapshots every edited chunk, i.e. every chunk a save has to store.
+     * Costs one small allocation per edited chunk and copies no tiles; those
+     * are only copied if they're edited again while a snapshot holds them.
+     */
+    public void snapshotEditedChunks(Array<ChunkSnapshot> out) {
+        if (dense != null) {
+            for (TileChunk chunk : dense) {
+                if (chunk.edited) out.add(chunk.snapshot());
+            }
+        } else {
+            for (TileChunk chunk : loaded.values()) {
+                if (chunk.edited) out.add(chunk.snapshot());
             }
         }
+    }
+
+    private TileChunk chunkFor(int cx, int cy) {
+        if (dense != null) return dense[cy * chunksX + cx];
+
+        TileChunk chunk = last;
+        if (chunk != null && chunk.cx == cx && chunk.cy == cy) return chunk;
 
-        return out;
+        chunk = loaded.get(chunkKey(cx, cy));
+        if (chunk == null) {
+            // Needed right now, so don't wait for the worker
+            chunk = generate(cx, cy, scratch);
+            install(chunk);
+        }
+
+        last = chunk;
+        return chunk;
     }
 
-    public void update() {
-        // Camera is controlled externally (CameraController)
-//        camera.update();
+    private void install(TileChunk chunk) {
+        chunk.version = nextVersion++;
+        loaded.put(chunkKey(chunk.cx, chunk.cy), chunk);
     }
 
-    public void render(SpriteBatch batch) {
-        // Projection matrix is set by WorldRenderer
-        for (int y = 0; y < height; y++) {
-            for (int x = 0; x < width; x++) {
-                int id = tiles[y][x];
-                TileType type = TileType.fromId(id);
-                TextureRegion tex = regions[type.row][type.col];
-                batch.draw(tex, x * TILE_SIZE, y * TILE_SIZE);
-            }
+    /** Streaming only: queues (cx, cy) for background generation unless it's loaded or queued. */
+    public void requestChunk(int cx, int cy) {
+        if (dense != null || cx < 0 || cx >= chunksX || cy < 0 || cy >= chunksY) return;
+
+        long key = chunkKey(cx, cy);
+        if (loaded.containsKey(key) || pending.containsKey(key)) return;
+        pending.put(key, Boolean.TRUE);
+
+        if (worker == null) {
+            worker = Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, "chunk-generator");
+                t.setDaemon(true);
+                return t;
+            });
         }
+
+        worker.execute(() -> generated.add(generate(cx, cy, new int[CHUNK_AREA])));
     }
 
-    public void dispose() {
-        tilesheet.dispose();
+    // Generators write plain ids; the chunk packs them
+    private TileChunk generate(int cx, int cy, int[] ids) {
+        generator.generate(cx, cy, ids);
+        TileChunk chunk = new TileChunk(cx, cy);
+        chunk.setAll(ids);
+        return chunk;
     }
 
-    public void setTile(int x, int y, int id) {
-        if (x >= 0 && x < width && y >= 0 && y < height) {
-            tiles[y][x] = id;
+    /** Streaming only: moves finished background chunks into the world. Returns how many. */
+    public int installGenerated() {
+        int count = 0;
+        TileChunk chunk;
+        while ((chunk = generated.poll()) != null) {
+            long key = chunkKey(chunk.cx, chunk.cy);
+            pending.remove(key);
+
+            // getTile() may have needed it first
+            if (loaded.containsKey(key)) continue;
+            install(chunk);
+            count++;
         }
+        return count;
     }
 
-    public int getTile(int x, int y) {
-        if (x < 0 || x >= width || y < 0 || y >= height) {
-            return -1;
+    /** Streaming only: drops every unedited chunk that keep rejects. Returns how many. */
+    public int evictChunks(ChunkFilter keep) {
+        if (dense != null) return 0;
+
+        evicting.clear();
+        for (TileChunk chunk : loaded.values()) {
+            if (!chunk.edited && !keep.keep(chunk.cx, chunk.cy)) evicting.add(chunk);
         }
-        return tiles[y][x];
+
+        int count = evicting.size;
+        for (TileChunk chunk : evicting) loaded.remove(chunkKey(chunk.cx, chunk.cy));
+        evicting.clear();
+        last = null;
+        return count;
     }
 
-    public Vector2 screenToWorld(int screenX, int screenY) {
-        Vector3 world = camera.unproject(new Vector3(screenX, screenY, 0));
-        return new Vector2((int)(world.x / TILE_SIZE), (int)(world.y / TILE_SIZE));
+    public boolean isChunkLoaded(int cx, int cy) {
+        return dense != null || loaded.containsKey(chunkKey(cx, cy));
     }
 
-    public OrthographicCamera getCamera() {
-        return camera;
+    public int getLoadedChunkCount() {
+        return dense != null ? dense.length : loaded.size;
+    }
+
+    /** Approximate heap used by tile data, for reporting. */
+    public long getTileBytes() {
+        long bytes = 0;
+        if (dense != null) {
+            for (TileChunk chunk : dense) bytes += chunk.sizeInBytes();
+        } else {
+            for (TileChunk chunk : loaded.values()) bytes += chunk.sizeInBytes();
+        }
+        return bytes;
     }
 
     public int getWidth() {
@@ -112,9 +277,33 @@ public class TileEngine {
         return height;
     }
 
-    public TextureRegion getRegion(int row, int col) {
-        return regions[row][col];
+    public int getChunksX() {
+        return chunksX;
+    }
+
+    public int getChunksY() {
+        return chunksY;
+    }
+
+    /** -1 while a streamed chunk isn't loaded. */
+    public int getChunkVersion(int cx, int cy) {
+        if (dense != null) return dense[cy * chunksX + cx].version;
+
+        TileChunk chunk = loaded.get(chunkKey(cx, cy));
+        return chunk == null ? -1 : chunk.version;
     }
 
     public boolean inBounds(int x, int y) { return x >= 0 && x < width && y >= 0 && y < height; }
+
+    private static long chunkKey(int cx, int cy) {
+        return ((long) cy << 32) | (cx & 0xffffffffL);
+    }
+
+    @Override
+    public void dispose() {
+        if (worker != null) {
+            worker.shutdownNow();
+            worker = null;
+        }
+    }
 }
@@ -1,31 +1,49 @@
 package dev.lmcginnisno1.ironfall.tiles;
 
+import java.util.Arrays;
+
 public enum TileType {
 
-    EMPTY(0, 7, -1, "empty"),
-    DIRT(12, 16, 0, "dirt"),
-    SAND(14, 16, 1, "sand"),
-    STONE(2, 9, 10, "stone"),
-    COAL(10, 10, 11, "coal"),
-    IRON(10, 11, 12, "iron"),
-    COPPER(11, 11, 13, "copper");
+    EMPTY(0, 7, -1, "empty", 0x202020ff),
+    DIRT(12, 16, 0, "dirt", 0x6b4e32ff),
+    SAND(14, 16, 1, "sand", 0xc8b27aff),
+    STONE(2, 9, 10, "stone", 0x77777bff),
+    COAL(10, 10, 11, "coal", 0x2b2b2bff),
+    IRON(10, 11, 12, "iron", 0xa8826eff),
+    COPPER(11, 11, 13, "copper", 0xc0703aff);
+
+    // Indexed by id; anything not a tile maps to EMPTY
+    private static final TileType[] BY_ID = byId();
 
     public final int row;
     public final int col;
     public final int id;
     public final String name;
 
-    TileType(int row, int col, int id, String name) {
+    // One texel per tile on the zoomed-out map and minimap, RGBA8888
+    public final int mapColor;
+
+    TileType(int row, int col, int id, String name, int mapColor) {
         this.row = row;
         this.col = col;
         this.id = id;
         this.name = name;
+        this.mapColor = mapColor;
     }
 
     public static TileType fromId(int id) {
+        return id >= 0 && id < BY_ID.length ? BY_ID[id] : EMPTY;
+    }
+
+    private static TileType[] byId() {
+        int max = 0;
+        for (TileType t : values()) max = Math.max(max, t.id);
+
+        TileType[] table = new TileType[max + 1];
+        Arrays.fill(table, EMPTY);
         for (TileType t : values()) {
-            if (t.id == id) return t;
+            if (t.id >= 0) table[t.id] = t;
         }
-        return EMPTY;
+        return table;
     }
 }
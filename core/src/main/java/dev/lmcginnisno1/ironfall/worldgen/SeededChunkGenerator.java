@@ -0,0 +1,126 @@
+package dev.lmcginnisno1.ironfall.worldgen;
+
+import dev.lmcginnisno1.ironfall.tiles.TileEngine;
+import dev.lmcginnisno1.ironfall.tiles.TileType;
+
+/**
+ * Generates any one chunk of a seeded world without looking at the rest of
+ * it, so fixed worlds can build their chunks in parallel and streaming
+ * worlds can build them whenever the camera gets close.
+ *
+ * Terrain is a hash per tile. Veins start in chunks: each chunk gets its
+ * share of a pass's seeds from its own stream, and a chunk replays every
+ * vein starting close enough to reach it, painting only the steps that land
+ * inside. Passes run in order, and within a pass veins go by source chunk
+ * and then index; since only dirt and sand get painted, the first vein to
+ * reach a tile keeps it, the same way in every chunk.
+ */
+final class SeededChunkGenerator implements TileEngine.ChunkGenerator {
+
+    private static final int CHUNK_SIZE = TileEngine.CHUNK_SIZE;
+
+    // WorldRandom streams; each vein pass uses VEIN + pass
+    private static final int TERRAIN = 0;
+    private static final int VEIN_COUNT = 1;
+    private static final int VEIN_STEP = 2;
+    private static final int VEIN = 3;
+
+    private static final int[] VEIN_ORES = {
+        TileType.COAL.id, TileType.IRON.id, TileType.COPPER.id, TileType.STONE.id
+    };
+    private static final int[] VEIN_LENGTHS = {60, 60, 60, 100};
+
+    // Seeds per pass on the 480x270 map these were tuned on, spread evenly
+    // over whatever area the world has
+    private static final int[] VEIN_SEEDS = {50, 30, 50, 100};
+    private static final double TUNED_AREA = 480 * 270;
+
+    private final long seed;
+    private final int width;
+    private final int height;
+    private final int chunksX;
+    private final int chunksY;
+
+    SeededChunkGenerator(long seed, int width, int height) {
+        this.seed = seed;
+        this.width = width;
+        this.height = height;
+        this.chunksX = (width + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        this.chunksY = (height + CHUNK_SIZE - 1) / CHUNK_SIZE;
+    }
+
+    @Override
+    public void generate(int cx, int cy, int[] out) {
+        int x0 = cx * CHUNK_SIZE;
+        int y0 = cy * CHUNK_SIZE;
+
+        for (int ly = 0; ly < CHUNK_SIZE; ly++) {
+            for (int lx = 0; lx < CHUNK_SIZE; lx++) {
+                double noise = WorldRandom.unit(WorldRandom.hash(seed, TERRAIN, x0 + lx, y0 + ly));
+                out[ly * CHUNK_SIZE + lx] = noise < 0.85 ? TileType.DIRT.id : TileType.SAND.id;
+            }
+        }
+
+        for (int pass = 0; pass < VEIN_ORES.length; pass++) {
+            // A vein can wander its full length from anywhere in its chunk
+            int length = VEIN_LENGTHS[pass];
+            int reach = (CHUNK_SIZE - 1 + length) / CHUNK_SIZE;
+
+            for (int sy = Math.max(0, cy - reach); sy <= Math.min(chunksY - 1, cy + reach); sy++) {
+                for (int sx = Math.max(0, cx - reach); sx <= Math.min(chunksX - 1, cx + reach); sx++) {
+                    paintVeins(pass, sx, sy, cx, cy, out);
+                }
+            }
+        }
+    }
+
+    private void paintVeins(int pass, int sx, int sy, int cx, int cy, int[] out) {
+        int sourceX0 = sx * CHUNK_SIZE;
+        int sourceY0 = sy * CHUNK_SIZE;
+        int sourceW = Math.min(CHUNK_SIZE, width - sourceX0);
+        int sourceH = Math.min(CHUNK_SIZE, height - sourceY0);
+
+        int key = sy * chunksX + sx;
+        double expected = VEIN_SEEDS[pass] * (sourceW * sourceH / TUNED_AREA);
+        int count = (int) expected;
+        if (WorldRandom.unit(WorldRandom.hash(seed, VEIN_COUNT, key, pass)) < expected - count) count++;
+
+        int length = VEIN_LENGTHS[pass];
+        int x0 = cx * CHUNK_SIZE;
+        int y0 = cy * CHUNK_SIZE;
+        int x1 = Math.min(x0 + CHUNK_SIZE, width);
+        int y1 = Math.min(y0 + CHUNK_SIZE, height);
+
+        int dirt = TileType.DIRT.id;
+        int sand = TileType.SAND.id;
+
+        for (int i = 0; i < count; i++) {
+            long vein = WorldRandom.hash(seed, VEIN + pass, key, i);
+            int x = sourceX0 + WorldRandom.below(vein, sourceW);
+            int y = sourceY0 + WorldRandom.below(WorldRandom.hash(vein, VEIN, 0, 0), sourceH);
+
+            // Too far away to get here in one walk
+            int dx = Math.max(0, Math.max(x0 - x, x - (x1 - 1)));
+            int dy = Math.max(0, Math.max(y0 - y, y - (y1 - 1)));
+            if (dx + dy >= length) continue;
+
+            for (int v = 0; v < length; v++) {
+                if (x >= x0 && x < x1 && y >= y0 && y < y1) {
+                    int at = (y - y0) * CHUNK_SIZE + (x - x0);
+                    if (out[at] == dirt || out[at] == sand) out[at] = VEIN_ORES[pass];
+                }
+
+                int dir = WorldRandom.below(WorldRandom.hash(vein, VEIN_STEP, v, 0), 4);
+                switch (dir) {
+                    case 0 -> x++;
+                    case 1 -> x--;
+                    case 2 -> y++;
+                    case 3 -> y--;
+                }
+
+                x = Math.max(0, Math.min(x, width - 1));
+                y = Math.max(0, Math.min(y, height - 1));
+            }
+        }
+    }
+}
@@ -5,94 +5,230 @@ import dev.lmcginnisno1.ironfall.buildings.BuildingManager;
 import dev.lmcginnisno1.ironfall.tiles.TileEngine;
 import dev.lmcginnisno1.ironfall.tiles.TileType;
 
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * Builds a map from a seed. The same seed always gives the same map: each
+ * chunk comes from SeededChunkGenerator, a pure function of the seed and
+ * the chunk's position, and the chunks are generated in parallel on a
+ * ForkJoinPool.
+ *
+ * Fixed worlds are generated whole. Streaming worlds only get a
+ * START_WIDTH x START_HEIGHT area in the middle, enough to place the Core;
+ * WorldStreamer fills in the rest as the camera moves.
+ */
 public class WorldGenerator {
 
+    // The default map size, and the area a streaming world starts with
+    public static final int START_WIDTH = 480;
+    public static final int START_HEIGHT = 270;
+
+    /** Generates from a fresh random seed. */
     public static void generate(TileEngine engine, BuildingManager buildings) {
+        generate(engine, buildings, new Random().nextLong());
+    }
+
+    public static void generate(TileEngine engine, BuildingManager buildings, long seed) {
+        generate(engine, buildings, seed, ForkJoinPool.commonPool());
+    }
+
+    public static void generate(TileEngine engine, BuildingManager buildings, long seed, ForkJoinPool pool) {
         int width = engine.getWidth();
         int height = engine.getHeight();
 
-        generateTerrain(engine, width, height);
-        generateVeins(engine, width, height);
+        int x0 = 0, y0 = 0, w = width, h = height;
+        if (engine.isStreaming()) {
+            w = Math.min(START_WIDTH, width);
+            h = Math.min(START_HEIGHT, height);
+            x0 = (width - w) / 2;
+            y0 = (height - h) / 2;
+        }
+
+        generateArea(engine, chunkGenerator(seed, width, height), x0, y0, w, h, pool);
 
-        Vector2 corePos = findCoreLocation(engine);
+        Vector2 corePos = findCoreLocation(engine, x0, y0, w, h);
         buildings.placeCore((int) corePos.x, (int) corePos.y);
     }
 
-    private static void generateTerrain(TileEngine engine, int width, int height) {
-        for (int y = 0; y < height; y++) {
-            for (int x = 0; x < width; x++) {
-                double noise = Math.random();
-                engine.setTile(x, y, noise < 0.85 ? TileType.DIRT.id : TileType.SAND.id);
+    /**
+     * Fills a fixed world's terrain from the seed without placing anything,
+     * e.g. under a loaded save. Streaming worlds generate theirs as they go.
+     */
+    public static void generateTerrain(TileEngine engine, long seed, ForkJoinPool pool) {
+        if (engine.isStreaming()) return;
+        generateArea(engine, chunkGenerator(seed, engine.getWidth(), engine.getHeight()),
+            0, 0, engine.getWidth(), engine.getHeight(), pool);
+    }
+
+    /** The generator a streaming TileEngine for this seed and size should use. */
+    public static TileEngine.ChunkGenerator chunkGenerator(long seed, int width, int height) {
+        return new SeededChunkGenerator(seed, width, height);
+    }
+
+    // Every chunk overlapping the area, in parallel. Fixed worlds take each
+    // chunk as soon as it's done, since no two tasks share one; a streaming
+    // world's chunk map isn't thread-safe, so those are installed afterwards.
+    private static void generateArea(TileEngine engine, TileEngine.ChunkGenerator generator,
+                                     int x0, int y0, int w, int h, ForkJoinPool pool) {
+        int cx0 = x0 / TileEngine.CHUNK_SIZE;
+        int cy0 = y0 / TileEngine.CHUNK_SIZE;
+        int cols = (x0 + w - 1) / TileEngine.CHUNK_SIZE - cx0 + 1;
+        int rows = (y0 + h - 1) / TileEngine.CHUNK_SIZE - cy0 + 1;
+
+        boolean direct = !engine.isStreaming();
+        int[][] results = direct ? null : new int[cols * rows][];
+
+        forEach(pool, cols * rows, i -> {
+            int cx = cx0 + i % cols;
+            int cy = cy0 + i / cols;
+
+            int[] tiles = new int[TileEngine.CHUNK_AREA];
+            generator.generate(cx, cy, tiles);
+
+            if (direct) engine.setChunk(cx, cy, tiles);
+            else results[i] = tiles;
+        });
+
+        if (!direct) {
+            for (int i = 0; i < results.length; i++) {
+                engine.setChunk(cx0 + i % cols, cy0 + i / cols, results[i]);
             }
         }
     }
 
-    private static void generateVeins(TileEngine engine, int width, int height) {
-        generateVein(engine, TileType.COAL.id, width, height, 50, 60);
-        generateVein(engine, TileType.IRON.id, width, height, 30, 60);
-        generateVein(engine, TileType.COPPER.id, width, height, 50, 60);
-        generateVein(engine, TileType.STONE.id, width, height, 100, 100);
+    private static void forEach(ForkJoinPool pool, int count, IntConsumer body) {
+        if (count == 0) return;
+        int grain = Math.max(1, count / (pool.getParallelism() * 4));
+        pool.invoke(new RangeTask(body, 0, count, grain));
     }
 
-    private static void generateVein(TileEngine engine, int tileId, int width, int height, int seedCount, int veinLength) {
-        for (int i = 0; i < seedCount; i++) {
-            int x = (int) (Math.random() * width);
-            int y = (int) (Math.random() * height);
-
-            for (int v = 0; v < veinLength; v++) {
-                TileType t = TileType.fromId(engine.getTile(x, y));
-                if (t == TileType.DIRT || t == TileType.SAND)
-                    engine.setTile(x, y, tileId);
-
-                int dir = (int) (Math.random() * 4);
-                switch (dir) {
-                    case 0 -> x++;
-                    case 1 -> x--;
-                    case 2 -> y++;
-                    case 3 -> y--;
-                }
+    private static final class RangeTask extends RecursiveAction {
+
+        private final IntConsumer body;
+        private final int from, to, grain;
 
-                x = Math.max(0, Math.min(x, width - 1));
-                y = Math.max(0, Math.min(y, height - 1));
+        RangeTask(IntConsumer body, int from, int to, int grain) {
+            this.body = body;
+            this.from = from;
+            this.to = to;
+            this.grain = grain;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= grain) {
+                for (int i = from; i < to; i++) body.accept(i);
+                return;
             }
+
+            int mid = (from + to) >>> 1;
+            invokeAll(new RangeTask(body, from, mid, grain), new RangeTask(body, mid, to, grain));
         }
     }
 
-    private static Vector2 findCoreLocation(TileEngine engine) {
-        int width = engine.getWidth();
-        int height = engine.getHeight();
-
-        int bestX = width / 2;
-        int bestY = height / 2;
-        float bestScore = Float.NEGATIVE_INFINITY;
+    // Public so the benchmarks can time it on its own
+    public static Vector2 findCoreLocation(TileEngine engine) {
+        return findCoreLocation(engine, 0, 0, engine.getWidth(), engine.getHeight());
+    }
 
-        for (int x = width / 4; x < width * 3 / 4; x++) {
-            for (int y = height / 4; y < height * 3 / 4; y++) {
+    /**
+     * Best spot for the Core in the middle half of the given area, weighing
+     * the ore around each candidate. Ore outside the area doesn't count, so
+     * for the whole map this is the same as counting up to the map edges.
+     */
+    public static Vector2 findCoreLocation(TileEngine engine, int areaX, int areaY, int areaWidth, int areaHeight) {
+        int x0 = areaWidth / 4;
+        int x1 = areaWidth * 3 / 4;
+        int y0 = areaHeight / 4;
+        int y1 = areaHeight * 3 / 4;
+        if (x0 >= x1 || y0 >= y1) return new Vector2(areaX + areaWidth / 2, areaY + areaHeight / 2);
+
+        OreTables tables = new OreTables(engine, areaX, areaY, areaWidth, areaHeight);
+
+        // Each column packs its best (score, position) into a long, so the
+        // max across columns is the first candidate in x-then-y order with
+        // the top score, the same one the old strict > scan kept
+        int rows = y1 - y0;
+        long best = IntStream.range(x0, x1).parallel()
+            .mapToLong(x -> {
+                long columnBest = Long.MIN_VALUE;
+                for (int y = y0; y < y1; y++) {
+                    int score = tables.copper.count(x, y, 20)
+                        + tables.iron.count(x, y, 30)
+                        + tables.coal.count(x, y, 30);
+
+                    long index = (long) (x - x0) * rows + (y - y0);
+                    long packed = ((long) score << 32) | (0xffffffffL - index);
+                    if (packed > columnBest) columnBest = packed;
+                }
+                return columnBest;
+            })
+            .max()
+            .getAsLong();
 
-                float score = 0;
-                score += oreScore(engine, x, y, TileType.COPPER.id, 20);
-                score += oreScore(engine, x, y, TileType.IRON.id, 30);
-                score += oreScore(engine, x, y, TileType.COAL.id, 30);
+        long index = 0xffffffffL - (best & 0xffffffffL);
+        return new Vector2(areaX + x0 + (int) (index / rows), areaY + y0 + (int) (index % rows));
+    }
 
-                if (score > bestScore) {
-                    bestScore = score;
-                    bestX = x;
-                    bestY = y;
+    // Summed-area tables for the three ores the Core placement weighs, built
+    // in one pass over the area. Coordinates are relative to its corner.
+    private static final class OreTables {
+        final SummedArea copper;
+        final SummedArea iron;
+        final SummedArea coal;
+
+        OreTables(TileEngine engine, int areaX, int areaY, int width, int height) {
+            copper = new SummedArea(width, height);
+            iron = new SummedArea(width, height);
+            coal = new SummedArea(width, height);
+
+            int stride = width + 1;
+            for (int y = 0; y < height; y++) {
+                int copperRow = 0, ironRow = 0, coalRow = 0;
+                int above = y * stride;
+                int here = above + stride;
+
+                for (int x = 0; x < width; x++) {
+                    int tile = engine.getTile(areaX + x, areaY + y);
+                    if (tile == TileType.COPPER.id) copperRow++;
+                    else if (tile == TileType.IRON.id) ironRow++;
+                    else if (tile == TileType.COAL.id) coalRow++;
+
+                    copper.sums[here + x + 1] = copper.sums[above + x + 1] + copperRow;
+                    iron.sums[here + x + 1] = iron.sums[above + x + 1] + ironRow;
+                    coal.sums[here + x + 1] = coal.sums[above + x + 1] + coalRow;
                 }
             }
         }
-
-        return new Vector2(bestX, bestY);
     }
 
-    private static float oreScore(TileEngine engine, int cx, int cy, int oreId, int radius) {
-        float score = 0;
-        for (int y = cy - radius; y <= cy + radius; y++) {
-            for (int x = cx - radius; x <= cx + radius; x++) {
-                if (!engine.inBounds(x, y)) continue;
-                if (engine.getTile(x, y) == oreId) score += 1;
-            }
+    // sums[(y + 1) * (width + 1) + (x + 1)] is the number of matching tiles
+    // in [0, x] x [0, y]; row and column 0 stay zero
+    private static final class SummedArea {
+        final int width;
+        final int height;
+        final int[] sums;
+
+        SummedArea(int width, int height) {
+            this.width = width;
+            this.height = height;
+            this.sums = new int[(width + 1) * (height + 1)];
+        }
+
+        // Matching tiles within radius of (cx, cy), clipped to the map
+        int count(int cx, int cy, int radius) {
+            int left = Math.max(0, cx - radius);
+            int right = Math.min(width, cx + radius + 1);
+            int bottom = Math.max(0, cy - radius);
+            int top = Math.min(height, cy + radius + 1);
+
+            int stride = width + 1;
+            return sums[top * stride + right] - sums[bottom * stride + right]
+                - sums[top * stride + left] + sums[bottom * stride + left];
         }
-        return score;
     }
 }
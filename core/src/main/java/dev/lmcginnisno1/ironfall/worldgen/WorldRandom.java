@@ -0,0 +1,36 @@
+package dev.lmcginnisno1.ironfall.worldgen;
+
+/**
+ * Counter-based randomness for world generation: every value is a pure hash
+ * of (seed, stream, a, b), so any tile or vein step can be drawn on any
+ * thread in any order and still come out the same for the same seed.
+ *
+ * The mixer is SplitMix64's finalizer, applied once per input word.
+ */
+final class WorldRandom {
+
+    private WorldRandom() {
+    }
+
+    static long hash(long seed, int stream, int a, int b) {
+        long h = mix(seed + 0x9E3779B97F4A7C15L * (stream + 1));
+        h = mix(h ^ (a & 0xffffffffL));
+        return mix(h ^ ((long) b << 32));
+    }
+
+    /** A double in [0, 1). */
+    static double unit(long hash) {
+        return (hash >>> 11) * 0x1.0p-53;
+    }
+
+    /** An int in [0, bound). */
+    static int below(long hash, int bound) {
+        return (int) (((hash >>> 32) * bound) >>> 32);
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,82 @@
+package dev.lmcginnisno1.ironfall.worldgen;
+
+import com.badlogic.gdx.utils.IntMap;
+import dev.lmcginnisno1.ironfall.buildings.Building;
+import dev.lmcginnisno1.ironfall.buildings.BuildingManager;
+import dev.lmcginnisno1.ironfall.tiles.TileEngine;
+
+/**
+ * Keeps a streaming TileEngine's loaded chunks following the camera. Every
+ * frame it asks for the chunks in and just around the view, which the
+ * engine generates in the background, and picks up whatever has finished.
+ * Every few seconds it drops chunks that are well away from both the view
+ * and the factory; they regenerate identically if the camera comes back.
+ */
+public class WorldStreamer {
+
+    // Chunks this far past the view are generated ahead of the camera
+    static final int PRELOAD = 2;
+
+    // Chunks further than this from the view and from every building are evicted
+    static final int KEEP = 6;
+
+    private static final float EVICT_INTERVAL = 5f;
+
+    private final TileEngine engine;
+    private final BuildingManager buildings;
+
+    // Chunk index -> anything; the chunks within one of a building this pass
+    private final IntMap<Boolean> factoryChunks = new IntMap<>();
+
+    private float sinceEvict = 0f;
+
+    public WorldStreamer(TileEngine engine, BuildingManager buildings) {
+        this.engine = engine;
+        this.buildings = buildings;
+    }
+
+    /** View is an inclusive tile range; empty (min > max) means nothing's on screen. */
+    public void update(int minX, int minY, int maxX, int maxY, float delta) {
+        engine.installGenerated();
+        if (minX > maxX || minY > maxY) return;
+
+        int cx0 = minX / TileEngine.CHUNK_SIZE;
+        int cy0 = minY / TileEngine.CHUNK_SIZE;
+        int cx1 = maxX / TileEngine.CHUNK_SIZE;
+        int cy1 = maxY / TileEngine.CHUNK_SIZE;
+
+        // What's on screen first, then the ring around it
+        for (int cy = cy0; cy <= cy1; cy++) {
+            for (int cx = cx0; cx <= cx1; cx++) engine.requestChunk(cx, cy);
+        }
+        for (int cy = cy0 - PRELOAD; cy <= cy1 + PRELOAD; cy++) {
+            for (int cx = cx0 - PRELOAD; cx <= cx1 + PRELOAD; cx++) engine.requestChunk(cx, cy);
+        }
+
+        sinceEvict += delta;
+        if (sinceEvict < EVICT_INTERVAL) return;
+        sinceEvict = 0f;
+
+        markFactoryChunks();
+        int chunksX = engine.getChunksX();
+        engine.evictChunks((cx, cy) ->
+            (cx >= cx0 - KEEP && cx <= cx1 + KEEP && cy >= cy0 - KEEP && cy <= cy1 + KEEP)
+                || factoryChunks.containsKey(cy * chunksX + cx));
+    }
+
+    private void markFactoryChunks() {
+        factoryChunks.clear();
+        int chunksX = engine.getChunksX();
+
+        for (Building b : buildings.getBuildings()) {
+            int cx0 = Math.max(0, b.x / TileEngine.CHUNK_SIZE - 1);
+            int cy0 = Math.max(0, b.y / TileEngine.CHUNK_SIZE - 1);
+            int cx1 = (b.x + b.width - 1) / TileEngine.CHUNK_SIZE + 1;
+            int cy1 = (b.y + b.height - 1) / TileEngine.CHUNK_SIZE + 1;
+
+            for (int cy = cy0; cy <= cy1; cy++) {
+                for (int cx = cx0; cx <= cx1; cx++) factoryChunks.put(cy * chunksX + cx, Boolean.TRUE);
+            }
+        }
+    }
+}
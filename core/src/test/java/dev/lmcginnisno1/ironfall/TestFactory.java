@@ -0,0 +1,26 @@
+package dev.lmcginnisno1.ironfall;
+
+import dev.lmcginnisno1.ironfall.game.FactoryScenario;
+import dev.lmcginnisno1.ironfall.game.Simulation;
+
+/**
+ * FactoryScenario, the layout the headless runner and SimulationTickBenchmark
+ * measure, wrapped up as a Simulation for tests.
+ */
+public final class TestFactory {
+
+    public static final long SEED = 7;
+
+    private TestFactory() {
+    }
+
+    /** A factory of cells cells (two belt rows each), each row rowLength tiles with minersPerRow miners along it. */
+    public static Simulation build(int cells, int rowLength, int minersPerRow) {
+        FactoryScenario factory = new FactoryScenario(cells * 2, rowLength, minersPerRow);
+        return new Simulation(factory.engine, factory.buildings, SEED, 0, 0);
+    }
+
+    public static void tick(Simulation sim, int ticks) {
+        for (int t = 0; t < ticks; t++) sim.tick();
+    }
+}
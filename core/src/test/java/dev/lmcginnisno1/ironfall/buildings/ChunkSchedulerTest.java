@@ -0,0 +1,65 @@
+package dev.lmcginnisno1.ironfall.buildings;
+
+import dev.lmcginnisno1.ironfall.TestFactory;
+import dev.lmcginnisno1.ironfall.game.Simulation;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class ChunkSchedulerTest {
+
+    private static final int TICKS = 1200;
+
+    @Test
+    void threadedUpdateMatchesSerial() {
+        Simulation serial = TestFactory.build(6, 60, 30);
+        Simulation threaded = TestFactory.build(6, 60, 30);
+        threaded.buildings.setSimulationThreads(4);
+
+        try {
+            long start = serial.stateHash();
+            for (int t = 0; t < TICKS; t++) {
+                serial.tick();
+                threaded.tick();
+                if (t % 60 == 0) assertEquals(serial.stateHash(), threaded.stateHash(), "diverged at tick " + t);
+            }
+            assertEquals(serial.stateHash(), threaded.stateHash());
+            // And the factory really did something in that time
+            assertNotEquals(start, serial.stateHash());
+        } finally {
+            serial.buildings.dispose();
+            threaded.buildings.dispose();
+        }
+    }
+
+    @Test
+    void threadedUpdateMatchesSerialWhileBuilding() {
+        Simulation serial = TestFactory.build(4, 60, 4);
+        Simulation threaded = TestFactory.build(4, 60, 4);
+        threaded.buildings.setSimulationThreads(3);
+
+        try {
+            for (int t = 0; t < TICKS; t++) {
+                // Cut and mend a belt mid-run so lines split and merge under both
+                if (t == 300) {
+                    remove(serial, 20, 3);
+                    remove(threaded, 20, 3);
+                } else if (t == 600) {
+                    serial.buildings.place(new Conveyor(20, 3, Conveyor.Direction.RIGHT));
+                    threaded.buildings.place(new Conveyor(20, 3, Conveyor.Direction.RIGHT));
+                }
+                serial.tick();
+                threaded.tick();
+            }
+            assertEquals(serial.stateHash(), threaded.stateHash());
+        } finally {
+            serial.buildings.dispose();
+            threaded.buildings.dispose();
+        }
+    }
+
+    private static void remove(Simulation sim, int x, int y) {
+        sim.buildings.remove(sim.buildings.getAt(x, y));
+    }
+}
@@ -0,0 +1,92 @@
+package dev.lmcginnisno1.ironfall.buildings;
+
+import dev.lmcginnisno1.ironfall.TestFactory;
+import dev.lmcginnisno1.ironfall.game.Simulation;
+import dev.lmcginnisno1.ironfall.items.ItemType;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OfflineProgressTest {
+
+    private static final ItemType[] TYPES = ItemType.values();
+
+    // Both copies tick this long first, so the rows are running in their
+    // steady state when they part
+    private static final int WARM_UP_TICKS = 20 * 60;
+
+    private static final int SECONDS = 30;
+
+    @Test
+    void matchesTickingWhenMinersSetTheRate() {
+        // 4 miners a row, 4 items a second, well inside what a belt carries.
+        // Off by at most the odd item a miner had part-mined either way.
+        compare(4, 0.05);
+    }
+
+    @Test
+    void matchesTickingWhenBeltsSetTheRate() {
+        // 20 miners a row, 20 items a second, on a belt that takes about 8.
+        // JAMMED_GAP can be off by a third in general, but these rows jam at
+        // gaps averaging 0.5 tiles, right where it assumes; both resources
+        // come out within 1% of ticking.
+        compare(20, 0.05);
+    }
+
+    @Test
+    void stopsAtTheStorageCapLikeTicking() {
+        Simulation ticked = TestFactory.build(1, 40, 20);
+        Simulation caughtUp = TestFactory.build(1, 40, 20);
+        int cap = ticked.buildings.getUpgrades().storageCap();
+
+        TestFactory.tick(ticked, 120 * 60);
+        OfflineProgress.catchUp(caughtUp.buildings, 120);
+
+        for (ItemType type : TYPES) {
+            assertEquals(core(ticked).getAmount(type), core(caughtUp).getAmount(type), type.name());
+        }
+        assertEquals(cap, core(caughtUp).getAmount(ItemType.COAL));
+        assertEquals(cap, core(caughtUp).getAmount(ItemType.IRON));
+    }
+
+    // Delivered per resource over SECONDS, ticked against caught up; within
+    // tolerance of the ticked amount
+    private static void compare(int minersPerRow, double tolerance) {
+        Simulation ticked = TestFactory.build(1, 40, minersPerRow);
+        Simulation caughtUp = TestFactory.build(1, 40, minersPerRow);
+        for (Simulation sim : new Simulation[] { ticked, caughtUp }) {
+            // Room for all of it, so the cap doesn't come into it
+            sim.buildings.getUpgrades().storageCapacityLevel = 5;
+            TestFactory.tick(sim, WARM_UP_TICKS);
+        }
+
+        int[] before = stock(core(ticked));
+        TestFactory.tick(ticked, SECONDS * 60);
+        int[] delivered = OfflineProgress.catchUp(caughtUp.buildings, SECONDS);
+
+        int[] after = stock(core(ticked));
+        for (ItemType type : TYPES) {
+            int t = type.ordinal();
+            int expected = after[t] - before[t];
+            int actual = delivered[t];
+            assertTrue(Math.abs(actual - expected) <= tolerance * expected,
+                type + ": ticking delivered " + expected + ", catching up " + actual);
+        }
+        assertTrue(delivered[ItemType.COAL.ordinal()] > 0);
+        assertTrue(delivered[ItemType.IRON.ordinal()] > 0);
+    }
+
+    private static int[] stock(Core core) {
+        int[] amounts = new int[TYPES.length];
+        for (ItemType type : TYPES) amounts[type.ordinal()] = core.getAmount(type);
+        return amounts;
+    }
+
+    private static Core core(Simulation sim) {
+        for (Building b : sim.buildings.getBuildings()) {
+            if (b instanceof Core core) return core;
+        }
+        throw new AssertionError("no Core");
+    }
+}
@@ -0,0 +1,139 @@
+package dev.lmcginnisno1.ironfall.buildings;
+
+import dev.lmcginnisno1.ironfall.items.ItemType;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TransportLineTest {
+
+    private static final float TICK = 1f / 60;
+    private static final float EPSILON = 1e-4f;
+
+    private final BuildingManager world = new BuildingManager(64, 16);
+
+    @Test
+    void insertWaitsForSpacing() {
+        TransportLine line = belt(1, 8, 4);
+        assertTrue(line.tryInsert(0, ItemType.COAL));
+        assertFalse(line.tryInsert(0, ItemType.IRON));
+
+        // A tick moves an item 1/15 of a tile: four leave it short of
+        // SPACING from the start, the fifth clears it
+        tick(4);
+        assertFalse(line.canInsert(0));
+        tick(1);
+        assertTrue(line.canInsert(0));
+        assertTrue(line.tryInsert(0, ItemType.IRON));
+        assertEquals(2, line.getItemCount());
+    }
+
+    @Test
+    void insertAheadOfAnItemGoesInFront() {
+        TransportLine line = belt(1, 8, 4);
+        assertTrue(line.tryInsert(3, ItemType.COAL));
+        assertTrue(line.tryInsert(5, ItemType.IRON));
+
+        assertEquals(ItemType.IRON, line.getItemType(0));
+        assertEquals(3f, line.getGap(0), EPSILON);
+        assertEquals(ItemType.COAL, line.getItemType(1));
+        assertEquals(2f, line.getGap(1), EPSILON);
+    }
+
+    @Test
+    void fedLineNeverClosesUpPastSpacing() {
+        TransportLine line = belt(1, 8, 4);
+        for (int t = 0; t < 600; t++) {
+            line.tryInsert(0, ItemType.COAL);
+            world.update(TICK);
+        }
+
+        // Backed up from the end, one item per SPACING
+        assertEquals(0f, line.getGap(0), EPSILON);
+        for (int i = 1; i < line.getItemCount(); i++) {
+            assertTrue(line.getGap(i) >= TransportLine.SPACING - EPSILON, "gap " + i + " is " + line.getGap(i));
+        }
+        assertEquals((int) (8 / TransportLine.SPACING) + 1, line.getItemCount());
+    }
+
+    @Test
+    void handOffIntoLineWithRoom() {
+        upBelt(6, 1, 6);
+        TransportLine feeder = belt(1, 5, 3);
+        // Placing the feeder rebuilt the lines next to it
+        TransportLine target = lineAt(6, 1);
+        assertTrue(feeder.tryInsert(0, ItemType.COPPER));
+
+        tick(120);
+        assertEquals(0, feeder.getItemCount());
+        assertEquals(1, target.getItemCount());
+        assertEquals(ItemType.COPPER, target.getItemType(0));
+    }
+
+    @Test
+    void handOffIntoFullLineWaits() {
+        upBelt(6, 1, 6);
+        TransportLine feeder = belt(1, 5, 3);
+        TransportLine target = lineAt(6, 1);
+        for (int t = 0; t < 600; t++) {
+            target.tryInsert(0, ItemType.COAL);
+            world.update(TICK);
+        }
+        int full = target.getItemCount();
+        assertFalse(target.canInsert(2));
+
+        assertTrue(feeder.tryInsert(0, ItemType.COPPER));
+        tick(200);
+
+        // Parked at the end of its line, asleep on the full one
+        assertEquals(1, feeder.getItemCount());
+        assertEquals(0f, feeder.getGap(0), EPSILON);
+        assertFalse(feeder.awake);
+        assertEquals(full, target.getItemCount());
+    }
+
+    @Test
+    void ringBufferKeepsOrderThroughWrapAndGrowth() {
+        // Into a Core, so items leave the front while new ones join the back
+        // and the buffer's head goes round many times, growing on the way
+        world.placeCore(21, 3);
+        Core core = (Core) world.getAt(21, 3);
+        TransportLine line = belt(1, 20, 4);
+
+        ItemType[] types = ItemType.values();
+        int fed = 0;
+        for (int t = 0; t < 3000; t++) {
+            if (line.tryInsert(0, types[fed % 3])) fed++;
+            world.update(TICK);
+
+            // Front to back, each item is the one fed before the item behind it
+            for (int i = 1; i < line.getItemCount(); i++) {
+                assertEquals((line.getItemType(i - 1).ordinal() + 1) % 3, line.getItemType(i).ordinal());
+            }
+        }
+
+        int delivered = 0;
+        for (ItemType type : types) delivered += core.getAmount(type);
+        assertEquals(fed, delivered + line.getItemCount());
+        assertTrue(delivered > 100, "only " + delivered + " delivered");
+    }
+
+    private TransportLine belt(int x0, int x1, int y) {
+        for (int x = x0; x <= x1; x++) world.place(new Conveyor(x, y, Conveyor.Direction.RIGHT));
+        return lineAt(x0, y);
+    }
+
+    private void upBelt(int x, int y0, int y1) {
+        for (int y = y0; y <= y1; y++) world.place(new Conveyor(x, y, Conveyor.Direction.UP));
+    }
+
+    private TransportLine lineAt(int x, int y) {
+        return ((Conveyor) world.getAt(x, y)).line;
+    }
+
+    private void tick(int ticks) {
+        for (int t = 0; t < ticks; t++) world.update(TICK);
+    }
+}
@@ -0,0 +1,135 @@
+package dev.lmcginnisno1.ironfall.buildings;
+
+import dev.lmcginnisno1.ironfall.items.ItemType;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TransportNetworkTest {
+
+    private static final float TICK = 1f / 60;
+    private static final double EPSILON = 1e-4;
+
+    private final BuildingManager world = new BuildingManager(64, 16);
+
+    @Test
+    void removingABeltMidRunSplitsTheLine() {
+        belt(1, 20, 4);
+        TransportLine line = lineAt(1, 4);
+        assertEquals(20, line.getLength());
+        feed(line, 300);
+
+        ArrayList<Double> before = itemXs();
+        world.remove(world.getAt(10, 4));
+
+        TransportLine upstream = lineAt(1, 4);
+        TransportLine downstream = lineAt(11, 4);
+        assertTrue(line.dead);
+        assertNotSame(upstream, downstream);
+        assertEquals(9, upstream.getLength());
+        assertEquals(10, downstream.getLength());
+        assertEquals(2, world.getTransportLines().size());
+
+        // Everything stays where it was, except what was on the removed tile
+        before.removeIf(x -> x >= 10 && x < 11);
+        assertPositions(before, itemXs());
+    }
+
+    @Test
+    void placingABeltJoinsTwoLines() {
+        belt(1, 9, 4);
+        belt(11, 20, 4);
+        assertEquals(2, world.getTransportLines().size());
+        feed(lineAt(1, 4), 120);
+        feed(lineAt(11, 4), 120);
+
+        ArrayList<Double> before = itemXs();
+        world.place(new Conveyor(10, 4, Conveyor.Direction.RIGHT));
+
+        TransportLine joined = lineAt(1, 4);
+        assertSame(joined, lineAt(20, 4));
+        assertEquals(20, joined.getLength());
+        assertEquals(1, world.getTransportLines().size());
+        assertPositions(before, itemXs());
+    }
+
+    @Test
+    void sideFeedStaysItsOwnLine() {
+        belt(1, 20, 4);
+        for (int y = 1; y < 4; y++) world.place(new Conveyor(10, y, Conveyor.Direction.UP));
+
+        // (10, 4) is still fed from behind by (9, 4), so the belt coming up
+        // from below hands off into it rather than joining it
+        TransportLine main = lineAt(1, 4);
+        TransportLine side = lineAt(10, 1);
+        assertNotSame(main, side);
+        assertEquals(20, main.getLength());
+        assertEquals(3, side.getLength());
+        assertSame(world.getAt(10, 4), side.handOffTarget());
+    }
+
+    @Test
+    void itemsMoveOnAfterARebuild() {
+        belt(1, 20, 4);
+        feed(lineAt(1, 4), 200);
+        world.remove(world.getAt(15, 4));
+        world.place(new Conveyor(15, 4, Conveyor.Direction.RIGHT));
+
+        TransportLine line = lineAt(1, 4);
+        ArrayList<Double> before = itemXs();
+        tick(400);
+        ArrayList<Double> after = itemXs();
+
+        // Nothing at the end to hand off to, so the front item stops there
+        // and everything behind it closes up
+        assertEquals(before.size(), after.size());
+        assertEquals(0f, line.getGap(0), EPSILON);
+        assertTrue(after.get(0) > before.get(0));
+    }
+
+    private void belt(int x0, int x1, int y) {
+        for (int x = x0; x <= x1; x++) world.place(new Conveyor(x, y, Conveyor.Direction.RIGHT));
+    }
+
+    private TransportLine lineAt(int x, int y) {
+        return ((Conveyor) world.getAt(x, y)).line;
+    }
+
+    // Puts an item on the start of line whenever there's room, for ticks ticks
+    private void feed(TransportLine line, int ticks) {
+        for (int t = 0; t < ticks; t++) {
+            line.tryInsert(0, ItemType.values()[t % 3]);
+            world.update(TICK);
+        }
+    }
+
+    private void tick(int ticks) {
+        for (int t = 0; t < ticks; t++) world.update(TICK);
+    }
+
+    // Every item's x, for belts running right, sorted from the back
+    private ArrayList<Double> itemXs() {
+        ArrayList<Double> xs = new ArrayList<>();
+        for (TransportLine line : world.getTransportLines()) {
+            float d = 0f;
+            for (int i = 0; i < line.getItemCount(); i++) {
+                d += line.getGap(i);
+                float pos = line.getLength() - d;
+                int index = Math.min((int) pos, line.getLength() - 1);
+                xs.add((double) line.getConveyor(index).x + (pos - index));
+            }
+        }
+        xs.sort(null);
+        return xs;
+    }
+
+    private static void assertPositions(ArrayList<Double> expected, ArrayList<Double> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) assertEquals(expected.get(i), actual.get(i), EPSILON);
+    }
+}
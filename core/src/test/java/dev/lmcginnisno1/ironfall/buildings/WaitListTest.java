@@ -0,0 +1,105 @@
+package dev.lmcginnisno1.ironfall.buildings;
+
+import dev.lmcginnisno1.ironfall.game.FactoryScenario;
+import dev.lmcginnisno1.ironfall.items.ItemType;
+import dev.lmcginnisno1.ironfall.tiles.TileEngine;
+import dev.lmcginnisno1.ironfall.tiles.TileType;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WaitListTest {
+
+    private static final float TICK = 1f / 60;
+
+    private final TileEngine engine = new TileEngine(64, 16);
+    private final BuildingManager world = new BuildingManager(64, 16);
+
+    @Test
+    void minerSleepsOnFullCoreAndWakesWhenItEmpties() {
+        // Miner right up against the Core, no belt
+        FactoryScenario.placeMiner(engine, world, 1, 4, TileType.COAL);
+        BasicMiner miner = (BasicMiner) world.getAt(1, 4);
+        Core core = core(3, 4);
+        int cap = world.getUpgrades().storageCap();
+        core.addStock(ItemType.COAL, cap);
+
+        tick(180);
+        assertFalse(miner.awake);
+        assertNotNull(miner.getBuffer());
+        assertEquals(cap, core.getAmount(ItemType.COAL));
+
+        core.sellAllItems();
+        assertTrue(miner.awake);
+        tick(1);
+        assertEquals(1, core.getAmount(ItemType.COAL));
+    }
+
+    @Test
+    void backedUpLineAndMinerWakeWhenCoreEmpties() {
+        FactoryScenario.placeMiner(engine, world, 2, 1, TileType.IRON);
+        BasicMiner miner = (BasicMiner) world.getAt(2, 1);
+        for (int x = 1; x <= 10; x++) world.place(new Conveyor(x, 3, Conveyor.Direction.RIGHT));
+        TransportLine line = lineAt(1, 3);
+        Core core = core(11, 3);
+        int cap = world.getUpgrades().storageCap();
+        core.addStock(ItemType.IRON, cap);
+
+        // Long enough for the belt to fill and the miner to back up behind it
+        tick(60 * 60);
+        assertFalse(line.awake);
+        assertFalse(miner.awake);
+        int parked = line.getItemCount();
+        assertTrue(parked > 20, "only " + parked + " items backed up");
+
+        core.sellAllItems();
+        assertTrue(line.awake);
+
+        // Everything that was parked, and then more from the miner
+        tick(60 * 60);
+        assertTrue(core.getAmount(ItemType.IRON) > parked, "delivered " + core.getAmount(ItemType.IRON));
+    }
+
+    @Test
+    void sideFeedWakesWhenDownstreamLineMoves() {
+        // A feeder comes up into a belt that runs into a full Core
+        for (int x = 1; x <= 10; x++) world.place(new Conveyor(x, 6, Conveyor.Direction.RIGHT));
+        for (int y = 1; y <= 5; y++) world.place(new Conveyor(5, y, Conveyor.Direction.UP));
+        TransportLine main = lineAt(1, 6);
+        TransportLine feeder = lineAt(5, 1);
+        Core core = core(11, 6);
+        core.addStock(ItemType.COPPER, world.getUpgrades().storageCap());
+
+        for (int t = 0; t < 60 * 30; t++) {
+            main.tryInsert(0, ItemType.COPPER);
+            feeder.tryInsert(0, ItemType.COPPER);
+            world.update(TICK);
+        }
+        assertFalse(main.awake);
+        assertFalse(feeder.awake);
+        assertFalse(main.canInsert(4));
+        int waiting = feeder.getItemCount();
+
+        // Only the Core is told; the main line moving is what wakes the feeder
+        core.sellAllItems();
+        assertFalse(feeder.awake);
+        tick(60 * 10);
+        assertTrue(feeder.getItemCount() < waiting, feeder.getItemCount() + " of " + waiting + " still waiting");
+    }
+
+    private Core core(int x, int y) {
+        world.placeCore(x, y);
+        return (Core) world.getAt(x, y);
+    }
+
+    private TransportLine lineAt(int x, int y) {
+        return ((Conveyor) world.getAt(x, y)).line;
+    }
+
+    private void tick(int ticks) {
+        for (int t = 0; t < ticks; t++) world.update(TICK);
+    }
+}
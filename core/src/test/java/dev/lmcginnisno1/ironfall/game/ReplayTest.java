@@ -0,0 +1,87 @@
+package dev.lmcginnisno1.ironfall.game;
+
+import dev.lmcginnisno1.ironfall.TestFactory;
+import dev.lmcginnisno1.ironfall.buildings.BasicMiner;
+import dev.lmcginnisno1.ironfall.buildings.Conveyor;
+import dev.lmcginnisno1.ironfall.buildings.Core;
+import dev.lmcginnisno1.ironfall.items.ItemType;
+import dev.lmcginnisno1.ironfall.save.SaveFile;
+import dev.lmcginnisno1.ironfall.tiles.TileType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReplayTest {
+
+    @TempDir
+    File dir;
+
+    @Test
+    void recordedSessionReplaysWithoutDiverging() throws IOException {
+        File file = record();
+
+        for (int threads : new int[] { 1, 4 }) {
+            Replay replay = Replay.run(file, threads);
+            assertEquals(-1, replay.divergedAt, replay.divergence);
+            assertEquals(7, replay.commands);
+            assertTrue(replay.hashesChecked >= 1500 / CommandJournal.HASH_INTERVAL, "only " + replay.hashesChecked + " hashes checked");
+            assertEquals(300 + 1500, replay.endTick);
+        }
+    }
+
+    @Test
+    void editedJournalDiverges() throws IOException {
+        File file = record();
+
+        // Start from a different credit balance than the session did
+        Simulation other = new Simulation(SaveFile.read(CommandJournal.startFile(file)));
+        other.credits++;
+        SaveFile.write(CommandJournal.startFile(file), other.toSaveGame());
+        other.buildings.dispose();
+
+        // Caught at the first hash, a second after the start
+        Replay replay = Replay.run(file, 1);
+        assertEquals(300 + CommandJournal.HASH_INTERVAL, replay.divergedAt);
+    }
+
+    // Plays a session from a factory already running, so the start save has
+    // items on its belts
+    private File record() throws IOException {
+        Simulation sim = TestFactory.build(2, 60, 10);
+        FactoryScenario.placeOre(sim.engine, 3, 5, TileType.IRON);
+        sim.credits = 100_000;
+        TestFactory.tick(sim, 300);
+
+        File file = new File(dir, "session.journal");
+        SaveFile.write(CommandJournal.startFile(file), sim.toSaveGame());
+        CommandJournal journal = new CommandJournal(file);
+        sim.setJournal(journal);
+
+        Core core = (Core) sim.buildings.getAt(61, 3);
+        try {
+            for (int t = 0; t < 1500; t++) {
+                switch (t) {
+                    case 100 -> assertTrue(sim.execute(new Command.Place(new BasicMiner(0, 0, sim.engine), 3, 5)));
+                    case 200 -> assertTrue(sim.execute(new Command.Remove(20, 3)));
+                    case 400 -> assertTrue(sim.execute(new Command.PlaceBelt(
+                        new int[] { 20 }, new int[] { 3 }, new Conveyor.Direction[] { Conveyor.Direction.RIGHT })));
+                    case 600 -> assertTrue(sim.execute(new Command.SetSale(core.x, core.y, ItemType.COAL, 0.5f)));
+                    case 700 -> assertTrue(sim.execute(new Command.Sell(core.x, core.y)));
+                    case 900 -> assertTrue(sim.execute(new Command.SellAll(core.x, core.y)));
+                    case 1000 -> assertTrue(sim.execute(new Command.Remove(3, 5)));
+                    default -> { }
+                }
+                sim.tick();
+            }
+            journal.close(sim);
+        } finally {
+            sim.buildings.dispose();
+        }
+        return file;
+    }
+}
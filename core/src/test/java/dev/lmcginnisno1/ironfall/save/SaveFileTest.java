@@ -0,0 +1,56 @@
+package dev.lmcginnisno1.ironfall.save;
+
+import dev.lmcginnisno1.ironfall.TestFactory;
+import dev.lmcginnisno1.ironfall.game.Simulation;
+import dev.lmcginnisno1.ironfall.tiles.TileType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SaveFileTest {
+
+    @TempDir
+    File dir;
+
+    @Test
+    void roundTripKeepsState() throws IOException {
+        Simulation sim = TestFactory.build(3, 60, 10);
+        TestFactory.tick(sim, 900);
+        sim.credits = 1234;
+
+        File file = new File(dir, "world.sav");
+        SaveFile.write(file, sim.toSaveGame());
+        Simulation loaded = new Simulation(SaveFile.read(file));
+
+        try {
+            assertEquals(sim.stateHash(), loaded.stateHash());
+
+            // And it carries on the same way
+            TestFactory.tick(sim, 300);
+            TestFactory.tick(loaded, 300);
+            assertEquals(sim.stateHash(), loaded.stateHash());
+        } finally {
+            sim.buildings.dispose();
+            loaded.buildings.dispose();
+        }
+    }
+
+    @Test
+    void roundTripKeepsEmptyTiles() throws IOException {
+        Simulation sim = TestFactory.build(1, 30, 2);
+        sim.engine.setTile(0, 0, TileType.EMPTY.id);
+
+        File file = new File(dir, "world.sav");
+        SaveFile.write(file, sim.toSaveGame());
+        SaveGame loaded = SaveFile.read(file);
+
+        assertEquals(TileType.EMPTY.id, loaded.engine.getTile(0, 0));
+        assertEquals(TileType.DIRT.id, loaded.engine.getTile(1, 0));
+        sim.buildings.dispose();
+        loaded.buildings.dispose();
+    }
+}
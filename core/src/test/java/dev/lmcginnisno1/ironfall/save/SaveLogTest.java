@@ -0,0 +1,54 @@
+package dev.lmcginnisno1.ironfall.save;
+
+import dev.lmcginnisno1.ironfall.TestFactory;
+import dev.lmcginnisno1.ironfall.buildings.Conveyor;
+import dev.lmcginnisno1.ironfall.game.Simulation;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SaveLogTest {
+
+    @TempDir
+    File dir;
+
+    @Test
+    void appendsAfterCompactingALoadedSave() throws IOException {
+        File file = new File(dir, "world.sav");
+
+        Simulation original = TestFactory.build(3, 60, 10);
+        TestFactory.tick(original, 300);
+        SaveFile.write(file, original.toSaveGame());
+        original.buildings.dispose();
+
+        // Play on from the loaded save, as the game does: the first write
+        // compacts over the file that was just read, later ones append
+        Simulation sim = new Simulation(SaveFile.read(file));
+        SaveLog log = new SaveLog(file);
+        try {
+            TestFactory.tick(sim, 120);
+            long compacted = log.write(SaveSnapshot.capture(sim.toSaveGame()));
+            assertEquals(compacted, file.length());
+
+            TestFactory.tick(sim, 120);
+            sim.buildings.remove(sim.buildings.getAt(20, 3));
+            sim.credits = 50;
+            long appended = log.write(SaveSnapshot.capture(sim.toSaveGame()));
+            assertEquals(compacted + appended, file.length());
+
+            TestFactory.tick(sim, 120);
+            sim.buildings.place(new Conveyor(20, 3, Conveyor.Direction.RIGHT));
+            log.write(SaveSnapshot.capture(sim.toSaveGame()));
+
+            Simulation loaded = new Simulation(SaveFile.read(file));
+            assertEquals(sim.stateHash(), loaded.stateHash());
+            loaded.buildings.dispose();
+        } finally {
+            sim.buildings.dispose();
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package dev.lmcginnisno1.ironfall.headless;
+
+import dev.lmcginnisno1.ironfall.buildings.BuildingManager;
+import dev.lmcginnisno1.ironfall.buildings.OfflineProgress;
+import dev.lmcginnisno1.ironfall.game.FactoryScenario;
+import dev.lmcginnisno1.ironfall.game.Replay;
+import dev.lmcginnisno1.ironfall.game.SimulationClock;
+import dev.lmcginnisno1.ironfall.save.SaveFile;
+import dev.lmcginnisno1.ironfall.save.SaveGame;
+import dev.lmcginnisno1.ironfall.save.SaveLog;
+import dev.lmcginnisno1.ironfall.save.SaveSnapshot;
+import dev.lmcginnisno1.ironfall.tiles.TileEngine;
+import dev.lmcginnisno1.ironfall.worldgen.WorldGenerator;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Runs the simulation with no window, GL context or assets and prints how
+ * fast it went. Arguments are key=value pairs:
+ *
+ *   scenario  saturated (default): a miner on every slot, Cores emptied
+ *                 every simulated second, so the belts are the bottleneck
+ *             starved: one miner per belt row, Cores emptied
+ *             backed-up: like saturated, but Cores are never emptied, so
+ *                 everything fills up and goes to sleep
+ *             worldgen: just times WorldGenerator on a width x height map
+ *             replay: re-runs a recorded session from journal, as fast as it
+ *                 goes, checking the recorded state hashes
+ *   belts     total belt tiles (default 10000)
+ *   length    tiles per belt row (default 64)
+ *   miners    miners per row, overriding the scenario's choice
+ *   ticks     measured ticks (default 3600, one simulated minute)
+ *   warmup    ticks run before measuring (default 600)
+ *   threads   simulation threads, or worldgen threads (default 1)
+ *   journal   the CommandJournal to replay (default ironfall.journal); its
+ *             starting save is expected next to it
+ *   width, height   map size for worldgen (default 480 x 270)
+ *   seed      world seed for worldgen (default 1)
+ *   streaming true to generate worldgen's map as a streaming world, which
+ *             only builds the start area (default false)
+ *   save      true to also time saving the factory afterwards (the snapshot
+ *             taken on the game thread, then the write) and loading it back,
+ *             then see how big an autosave a simulated second later is
+ *   offline   seconds of absence to catch up analytically afterwards (see
+ *             OfflineProgress), to compare against the measured delivery
+ *             rate; Cores are emptied first
+ */
+public class HeadlessRunner {
+
+    public static void main(String[] args) {
+        Map<String, String> opts = new HashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq <= 0) throw new IllegalArgumentException("Expected key=value, got: " + arg);
+            opts.put(arg.substring(0, eq), arg.substring(eq + 1));
+        }
+
+        String scenario = opts.getOrDefault("scenario", "saturated");
+        if (scenario.equals("worldgen")) {
+            runWorldgen(intOpt(opts, "width", 480), intOpt(opts, "height", 270),
+                Long.parseLong(opts.getOrDefault("seed", "1")), intOpt(opts, "threads", 1),
+                Boolean.parseBoolean(opts.getOrDefault("streaming", "false")));
+            return;
+        }
+        if (scenario.equals("replay")) {
+            runReplay(new File(opts.getOrDefault("journal", "ironfall.journal")), intOpt(opts, "threads", 1));
+            return;
+        }
+
+        int length = intOpt(opts, "length", 64);
+        int rows = Math.max(1, (intOpt(opts, "belts", 10000) + length - 1) / length);
+        int ticks = intOpt(opts, "ticks", 3600);
+        int warmup = intOpt(opts, "warmup", 600);
+        int threads = intOpt(opts, "threads", 1);
+
+        int minersPerRow;
+        boolean drain;
+        switch (scenario) {
+            case "saturated" -> { minersPerRow = length / 2; drain = true; }
+            case "starved" -> { minersPerRow = 1; drain = true; }
+            case "backed-up" -> { minersPerRow = length / 2; drain = false; }
+            default -> throw new IllegalArgumentException("Unknown scenario: " + scenario);
+        }
+        minersPerRow = intOpt(opts, "miners", minersPerRow);
+
+        long buildStart = System.nanoTime();
+        FactoryScenario factory = new FactoryScenario(rows, length, minersPerRow);
+        BuildingManager buildings = factory.buildings;
+        buildings.setSimulationThreads(threads);
+        long buildNanos = System.nanoTime() - buildStart;
+
+        System.out.printf("scenario=%s cores=%d belts=%d miners=%d threads=%d (built in %.1f ms)%n",
+            scenario, factory.cores.size(), factory.beltTiles, factory.miners, threads, buildNanos / 1e6);
+
+        for (int i = 0; i < warmup; i++) {
+            buildings.update(SimulationClock.TICK_SECONDS);
+            if (drain && i % SimulationClock.TICKS_PER_SECOND == 0) factory.drainCores();
+        }
+
+        // Measure deliveries from here on
+        long delivered = -factory.storedItems();
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ticks; i++) {
+            buildings.update(SimulationClock.TICK_SECONDS);
+            if (drain && i % SimulationClock.TICKS_PER_SECOND == 0) delivered += factory.drainCores();
+        }
+        long nanos = System.nanoTime() - start;
+        delivered += factory.storedItems();
+
+        if (Boolean.parseBoolean(opts.getOrDefault("save", "false"))) timeSave(factory, ticks + warmup);
+        if (opts.containsKey("offline")) {
+            timeOffline(factory, Double.parseDouble(opts.get("offline")), delivered / (ticks * SimulationClock.TICK_SECONDS));
+        }
+
+        buildings.dispose();
+
+        double wallSeconds = nanos / 1e9;
+        double simSeconds = ticks * SimulationClock.TICK_SECONDS;
+
+        System.out.printf("measured %d ticks (after %d warmup) in %.1f ms%n", ticks, warmup, nanos / 1e6);
+        System.out.printf("ticks/sec: %.1f (%.1fx real time)%n", ticks / wallSeconds, simSeconds / wallSeconds);
+        System.out.printf("items delivered: %d (%.1f per sim second, %.1f per wall second)%n",
+            delivered, delivered / simSeconds, delivered / wallSeconds);
+    }
+
+    private static void runWorldgen(int width, int height, long seed, int threads, boolean streaming) {
+        ForkJoinPool pool = new ForkJoinPool(threads);
+
+        long start = System.nanoTime();
+        TileEngine engine = streaming
+            ? new TileEngine(width, height, WorldGenerator.chunkGenerator(seed, width, height))
+            : new TileEngine(width, height);
+        BuildingManager buildings = new BuildingManager(width, height);
+        WorldGenerator.generate(engine, buildings, seed, pool);
+        long nanos = System.nanoTime() - start;
+
+        pool.shutdown();
+
+        if (streaming) {
+            System.out.printf("worldgen %dx%d (streaming) seed=%d threads=%d in %.1f ms, core at %d,%d, %d chunks loaded (%.1f KB of tiles)%n",
+                width, height, seed, threads, nanos / 1e6, buildings.getCore().x, buildings.getCore().y,
+                engine.getLoadedChunkCount(), engine.getTileBytes() / 1024.0);
+            return;
+        }
+
+        // Same seed, same map, whatever the thread count
+        long hash = 1;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) hash = hash * 31 + engine.getTile(x, y);
+        }
+
+        System.out.printf("worldgen %dx%d seed=%d threads=%d in %.1f ms, core at %d,%d, map hash %016x (%.1f KB of tiles)%n",
+            width, height, seed, threads, nanos / 1e6, buildings.getCore().x, buildings.getCore().y, hash,
+            engine.getTileBytes() / 1024.0);
+    }
+
+    private static void runReplay(File journal, int threads) {
+        Replay replay;
+        try {
+            replay = Replay.run(journal, threads);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        long ticks = replay.endTick - replay.startTick;
+        double wallSeconds = replay.runNanos / 1e9;
+        System.out.printf("replay %s threads=%d: loaded in %.1f ms, ticks %d to %d, %d commands, %d hashes checked%n",
+            journal, threads, replay.loadNanos / 1e6, replay.startTick, replay.endTick, replay.commands, replay.hashesChecked);
+        System.out.printf("ran %d ticks in %.1f ms (%.1f ticks/sec, %.1fx real time)%n", ticks, replay.runNanos / 1e6,
+            ticks / wallSeconds, ticks * SimulationClock.TICK_SECONDS / wallSeconds);
+
+        if (replay.divergedAt >= 0) {
+            System.out.printf("DIVERGED at tick %d: %s%n", replay.divergedAt, replay.divergence);
+            System.exit(1);
+        }
+        System.out.println("replay matched the recording");
+    }
+
+    private static void timeOffline(FactoryScenario factory, double seconds, double measuredRate) {
+        factory.drainCores();
+
+        long start = System.nanoTime();
+        int[] delivered = OfflineProgress.catchUp(factory.buildings, seconds);
+        long nanos = System.nanoTime() - start;
+
+        long total = 0;
+        for (int count : delivered) total += count;
+        System.out.printf("offline: caught up %.0f s in %.2f ms, %d items (%.1f per second; ticking measured %.1f)%n",
+            seconds, nanos / 1e6, total, total / seconds, measuredRate);
+    }
+
+    private static void timeSave(FactoryScenario factory, long tick) {
+        try {
+            File file = File.createTempFile("ironfall", ".sav");
+            file.deleteOnExit();
+
+            // Best of a few: the first snapshot pays for class loading and JIT
+            long snapshotNanos = Long.MAX_VALUE;
+            SaveSnapshot snapshot = null;
+            for (int i = 0; i < 20; i++) {
+                long start = System.nanoTime();
+                snapshot = SaveSnapshot.capture(new SaveGame(factory.engine, factory.buildings, 1, 0, tick));
+                snapshotNanos = Math.min(snapshotNanos, System.nanoTime() - start);
+            }
+
+            SaveLog log = new SaveLog(file);
+            long start = System.nanoTime();
+            log.write(snapshot);
+            long writeNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            SaveGame loaded = SaveFile.read(file);
+            long readNanos = System.nanoTime() - start;
+            loaded.buildings.dispose();
+
+            System.out.printf("save: snapshot %.2f ms, write %.1f ms, load %.1f ms, %.1f KB on disk (%d buildings restored)%n",
+                snapshotNanos / 1e6, writeNanos / 1e6, readNanos / 1e6, file.length() / 1024.0,
+                loaded.buildings.getBuildings().size());
+
+            // Only what changed goes in, so a backed-up factory costs next to nothing
+            for (int i = 0; i < SimulationClock.TICKS_PER_SECOND; i++) factory.buildings.update(SimulationClock.TICK_SECONDS);
+            long appended = log.write(SaveSnapshot.capture(
+                new SaveGame(factory.engine, factory.buildings, 1, 0, tick + SimulationClock.TICKS_PER_SECOND)));
+            System.out.printf("save: one simulated second later, the autosave appended %.1f KB%n", appended / 1024.0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static int intOpt(Map<String, String> opts, String key, int fallback) {
+        String value = opts.get(key);
+        return value == null ? fallback : Integer.parseInt(value);
+    }
+}
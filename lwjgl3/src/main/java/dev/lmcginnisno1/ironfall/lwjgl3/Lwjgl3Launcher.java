@@ -3,19 +3,24 @@ package dev.lmcginnisno1.ironfall.lwjgl3;
 import com.badlogic.gdx.backends.lwjgl3.Lwjgl3Application;
 import com.badlogic.gdx.backends.lwjgl3.Lwjgl3ApplicationConfiguration;
 import dev.lmcginnisno1.ironfall.IronfallGame;
+import dev.lmcginnisno1.ironfall.render.CoreProfileShaders;
+
+import java.util.Arrays;
 
 /** Launches the desktop (LWJGL3) application. */
 public class Lwjgl3Launcher {
     public static void main(String[] args) {
         if (dev.lmcginnisno1.ironfall.lwjgl3.StartupHelper.startNewJvmIfRequired()) return; // This handles macOS support and helps on Windows.
-        createApplication();
+        createApplication(Arrays.asList(args).contains("--streaming-world"), Arrays.asList(args).contains("--gl30"));
     }
 
-    private static Lwjgl3Application createApplication() {
-        return new Lwjgl3Application(new IronfallGame(), getDefaultConfiguration());
+    private static Lwjgl3Application createApplication(boolean streamingWorld, boolean gl30) {
+        // Leave one core for the render thread; the sim gives identical results either way
+        int simulationThreads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        return new Lwjgl3Application(new IronfallGame(simulationThreads, streamingWorld), getDefaultConfiguration(gl30));
     }
 
-    private static Lwjgl3ApplicationConfiguration getDefaultConfiguration() {
+    private static Lwjgl3ApplicationConfiguration getDefaultConfiguration(boolean gl30) {
         Lwjgl3ApplicationConfiguration configuration = new Lwjgl3ApplicationConfiguration();
         configuration.setTitle("Ironfall");
         //// Vsync limits the frames per second to what your hardware can display, and helps eliminate
@@ -44,6 +49,16 @@ public class Lwjgl3Launcher {
         //// Know that it might not work well in some cases.
 //        configuration.setOpenGLEmulation(Lwjgl3ApplicationConfiguration.GLEmulation.ANGLE_GLES20, 0, 0);
 
+        // A GL 3.2 core context lets belt items be drawn instanced; without it
+        // they go through the SpriteBatch like everything else. A core context
+        // won't compile libGDX's GLSL 1.10 shaders, so every shader gets a
+        // 1.50 header first. Experimental: not yet run on a real core profile
+        // (macOS, Mesa), so it stays off by default.
+        if (gl30) {
+            configuration.setOpenGLEmulation(Lwjgl3ApplicationConfiguration.GLEmulation.GL30, 3, 2);
+            CoreProfileShaders.install();
+        }
+
         return configuration;
     }
 }